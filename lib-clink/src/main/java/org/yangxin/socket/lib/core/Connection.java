@@ -13,6 +13,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.channels.SocketChannel;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 
 /**
  * 连接，实现了当通道状态发生改变时的回调
@@ -66,14 +68,17 @@ public abstract class Connection implements Closeable, SocketChannelAdapter.OnCh
         // 通过输入输出上下文获得套接字通道适配器，
         // （输入输出上下文环境获取到的输入输出提供者具体是哪个服务端的实例还是客户端的实例这并不重要，因为两个实例起到的作用是一样的）
         IoContext context = IoContext.get();
-        SocketChannelAdapter adapter = new SocketChannelAdapter(channel, context.getIoProvider(), this);
+        SocketChannelAdapter adapter = new SocketChannelAdapter(channel,
+                context.getIoProvider(),
+                this,
+                context.getEventBudget());
 
         // 设置发送者和接收者
         this.sender = adapter;
         this.receiver = adapter;
 
         // 设置发送调度者和接收调度者（异步的发送调度者和异步的接收调度者）
-        sendDispatcher = new AsyncSendDispatcher(sender);
+        sendDispatcher = new AsyncSendDispatcher(sender, context.isDirectSend(), this::onWritabilityChanged);
         receiveDispatcher = new AsyncReceiveDispatcher(receiver, receivePacketCallback);
 
         // 启动接收调度者（实际就是注册读事件和该事件对应的回调）
@@ -84,17 +89,69 @@ public abstract class Connection implements Closeable, SocketChannelAdapter.OnCh
      * 发送消息
      *
      * @param msg 消息
+     * @return True：已加入发送队列；False：发送队列已满，消息被拒绝
      */
-    public void send(String msg) {
+    public boolean send(String msg) {
         // 每次都是实例化一个字符串发送包，即发送的消息只支持字符串消息
         StringSendPacket packet = new StringSendPacket(msg);
 
         // 然后将该包交给发送调度者来发送（异步处理）
-        sendDispatcher.send(packet);
+        return sendDispatcher.send(packet);
+    }
+
+    public boolean send(SendPacket<?> packet) {
+        return sendDispatcher.send(packet);
+    }
+
+    /**
+     * 发送消息，返回发送结果
+     *
+     * @param msg 消息
+     * @return 发送结果，在数据全部写出、被取消或被拒绝时完成
+     */
+    public CompletableFuture<SendResult> sendAsync(String msg) {
+        return sendAsync(new StringSendPacket(msg));
     }
 
-    public void send(SendPacket<?> packet) {
+    /**
+     * 发送包，返回发送结果，
+     * 结果在发送线程上完成，耗时的后续处理应使用异步的回调方法
+     *
+     * @param packet 发送包
+     * @return 发送结果，在数据全部写出、被取消或被拒绝时完成
+     */
+    public CompletableFuture<SendResult> sendAsync(SendPacket<?> packet) {
+        CompletableFuture<SendResult> future = packet.attachFuture();
         sendDispatcher.send(packet);
+        return future;
+    }
+
+    /**
+     * 取消发送
+     *
+     * @param packet 发送包
+     */
+    public void cancel(SendPacket<?> packet) {
+        sendDispatcher.cancel(packet);
+    }
+
+    /**
+     * 取消所有满足条件的发送包，如离开房间时取消所有发往该房间的广播
+     *
+     * @param predicate 条件
+     */
+    public void cancelAll(Predicate<SendPacket<?>> predicate) {
+        sendDispatcher.cancelAll(predicate);
+    }
+
+    /**
+     * 是否可写，待发送的数据积压超过高水位时不可写，
+     * 广播等场景可据此暂停或丢弃对当前连接的发送
+     *
+     * @return True：可写
+     */
+    public boolean isWritable() {
+        return sendDispatcher.isWritable();
     }
 
     @Override
@@ -119,6 +176,15 @@ public abstract class Connection implements Closeable, SocketChannelAdapter.OnCh
         System.out.println(key + ":[New Packet]-Type:" + packet.type() + ",Length:" + packet.length());
     }
 
+    /**
+     * 可写状态变化
+     *
+     * @param isWritable 当前是否可写
+     */
+    protected void onWritabilityChanged(boolean isWritable) {
+
+    }
+
     /**
      * 创建新的接收文件
      *
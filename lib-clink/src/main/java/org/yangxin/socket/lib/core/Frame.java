@@ -15,11 +15,21 @@ public abstract class Frame {
      */
     public static final int FRAME_HEADER_LENGTH = 6;
 
+    /**
+     * 扩展长度的帧头长度，基本帧头之后追加2字节作为长度的高16位
+     */
+    public static final int JUMBO_FRAME_HEADER_LENGTH = 8;
+
     /**
      * 单帧最大容量 64KB
      */
     public static final int MAX_CAPACITY = 64 * 1024 - 1;
 
+    /**
+     * 扩展长度的实体帧的最大容量
+     */
+    public static final int MAX_JUMBO_CAPACITY = Integer.MAX_VALUE;
+
     /**
      * Packet头信息帧
      */
@@ -30,6 +40,11 @@ public abstract class Frame {
      */
     public static final byte TYPE_PACKET_ENTITY = 12;
 
+    /**
+     * 紧凑帧，整个Packet仅一帧：Flag存放Packet类型，帧体即Packet的全部数据
+     */
+    public static final byte TYPE_PACKET_COMPACT = 13;
+
     /**
      * 指令-发送取消
      */
@@ -46,16 +61,48 @@ public abstract class Frame {
     public static final byte FLAG_NONE = 0;
 
     /**
-     * 头部6字节固定
+     * 实体帧的Flag：长度扩展为32位，仅对{@link #TYPE_PACKET_ENTITY}有效
+     */
+    public static final byte FLAG_JUMBO = 1;
+
+    /**
+     * 标准模式下的最大标识，标识仅占用帧头的第5个字节
+     */
+    public static final int MAX_IDENTIFIER = 255;
+
+    /**
+     * 扩展模式下的最大标识，帧头的第6个字节作为标识的高8位
      */
-    protected final byte[] header = new byte[FRAME_HEADER_LENGTH];
+    public static final int MAX_EXTENDED_IDENTIFIER = 65535;
 
-    public Frame(int length, byte type, byte flag, short identifier) {
-        if (length < 0 || length > MAX_CAPACITY) {
+    /**
+     * 头部6字节固定，扩展长度的实体帧为8字节
+     */
+    protected final byte[] header = new byte[JUMBO_FRAME_HEADER_LENGTH];
+
+    public Frame(int length, byte type, byte flag, int identifier) {
+        setHeader(length, type, flag, identifier);
+    }
+
+    public Frame(byte[] header) {
+        setHeader(header);
+    }
+
+    /**
+     * 设置帧头，复用帧对象时重新初始化
+     *
+     * @param length     帧体长度
+     * @param type       类型
+     * @param flag       Flag
+     * @param identifier 标识
+     */
+    protected final void setHeader(int length, byte type, byte flag, int identifier) {
+        boolean isJumbo = getHeaderLength(type, flag) == JUMBO_FRAME_HEADER_LENGTH;
+        if (length < 0 || length > (isJumbo ? MAX_JUMBO_CAPACITY : MAX_CAPACITY)) {
             throw new RuntimeException("");
         }
 
-        if (identifier < 1 || identifier > 255) {
+        if (identifier < 1 || identifier > MAX_EXTENDED_IDENTIFIER) {
             throw new RuntimeException("");
         }
 
@@ -66,21 +113,59 @@ public abstract class Frame {
         header[2] = type;
         header[3] = flag;
 
+        // 低8位，标识不超过255时高8位为0，与只使用第5个字节的对端兼容
         header[4] = (byte) identifier;
-        header[5] = 0;
+        header[5] = (byte) (identifier >> 8);
+
+        if (isJumbo) {
+            // 长度的高16位
+            header[6] = (byte) (length >> 24);
+            header[7] = (byte) (length >> 16);
+        }
     }
 
-    public Frame(byte[] header) {
-        System.arraycopy(header, 0, this.header, 0, FRAME_HEADER_LENGTH);
+    /**
+     * 从完整的帧头复制，复用帧对象时重新初始化
+     *
+     * @param header 帧头
+     */
+    protected final void setHeader(byte[] header) {
+        System.arraycopy(header, 0, this.header, 0, getHeaderLength(header[2], header[3]));
+    }
+
+    /**
+     * 帧头的长度
+     *
+     * @param type 类型
+     * @param flag Flag
+     * @return 扩展长度的实体帧为{@link #JUMBO_FRAME_HEADER_LENGTH}，其它为{@link #FRAME_HEADER_LENGTH}
+     */
+    public static int getHeaderLength(byte type, byte flag) {
+        return type == TYPE_PACKET_ENTITY && (flag & FLAG_JUMBO) != 0
+                ? JUMBO_FRAME_HEADER_LENGTH
+                : FRAME_HEADER_LENGTH;
+    }
+
+    /**
+     * 获取帧头的长度
+     *
+     * @return 帧头长度
+     */
+    public int getHeaderLength() {
+        return getHeaderLength(header[2], header[3]);
     }
 
     /**
      * 获取Body的长度
      *
-     * @return 当前帧Body总长度[0~MAX_CAPACITY]
+     * @return 当前帧Body总长度[0~MAX_CAPACITY]，扩展长度的实体帧为[0~MAX_JUMBO_CAPACITY]
      */
     public int getBodyLength() {
-        return ((((int) header[0]) & 0xff) << 8) | (((int) header[1]) & 0xff);
+        int length = ((((int) header[0]) & 0xff) << 8) | (((int) header[1]) & 0xff);
+        if (getHeaderLength() == JUMBO_FRAME_HEADER_LENGTH) {
+            length |= ((((int) header[6]) & 0xff) << 24) | ((((int) header[7]) & 0xff) << 16);
+        }
+        return length;
     }
 
     /**
@@ -104,10 +189,10 @@ public abstract class Frame {
     /**
      * 获取Body的唯一标志
      *
-     * @return 标志[0~255]
+     * @return 标志[0~65535]
      */
-    public short getBodyIdentifier() {
-        return (short) (((short) header[4]) & 0xff);
+    public int getBodyIdentifier() {
+        return (((int) header[4]) & 0xff) | ((((int) header[5]) & 0xff) << 8);
     }
 
     /**
@@ -1,8 +1,13 @@
 package org.yangxin.socket.lib.core;
 
+import org.yangxin.socket.lib.core.ds.DirectBufferPool;
+
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.WritableByteChannel;
@@ -15,14 +20,111 @@ import java.nio.channels.WritableByteChannel;
 public class IoArgs {
 
     /**
-     * 初始容量为256个字节
+     * 默认容量为256个字节
+     */
+    private static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * 连续多少次小数据读取后缩小容量
+     */
+    private static final int SHRINK_THRESHOLD = 16;
+
+    /**
+     * 中转数组的大小
+     */
+    private static final int TRANSFER_SIZE = 8 * 1024;
+
+    /**
+     * 单次写操作的容纳区间
+     */
+    private int limit = DEFAULT_CAPACITY;
+
+    /**
+     * 缓冲容量，自适应时在{@link #minCapacity}与{@link #maxCapacity}之间调整
+     */
+    private int capacity;
+
+    /**
+     * 自适应容量的下限
+     */
+    private final int minCapacity;
+
+    /**
+     * 自适应容量的上限，与下限相等时容量固定
+     */
+    private final int maxCapacity;
+
+    /**
+     * 连续的小数据读取次数
+     */
+    private int smallReads;
+
+    /**
+     * 容量是否已调整，调整后下一次开始写入时按新容量重新分配缓冲
+     */
+    private boolean isResized;
+
+    /**
+     * 文件被关闭后用于补齐文件区间的空数据
+     */
+    private static final ByteBuffer EMPTY_REGION = ByteBuffer.allocateDirect(8 * 1024).asReadOnlyBuffer();
+
+    /**
+     * 缓冲之后待发送的文件区间所属的文件通道，写出时由文件通道直接传输到套接字通道
+     */
+    private FileChannel regionChannel;
+
+    /**
+     * 文件区间的当前位置
+     */
+    private long regionPosition;
+
+    /**
+     * 文件区间剩余的长度
+     */
+    private long regionRemaining;
+
+    /**
+     * 直接内存缓冲池，为null时使用堆内缓冲
      */
-    private int limit = 256;
+    private final DirectBufferPool pool;
 
     /**
-     * 底层字节缓冲实例
+     * 底层字节缓冲实例，在开始写入时分配；使用缓冲池时从池中借出，{@link #release()}时归还
      */
-    private final ByteBuffer buffer = ByteBuffer.allocate(limit);
+    private ByteBuffer buffer;
+
+    /**
+     * 直接内存缓冲与流之间中转数据的数组，首次使用时创建并一直复用
+     */
+    private byte[] transferBytes;
+
+    /**
+     * 固定容量的输入输出参数
+     */
+    public IoArgs() {
+        this(DEFAULT_CAPACITY, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * 自适应容量的输入输出参数，
+     * 读写填满整个缓冲时容量翻倍，连续多次读写不足一半容量时容量减半，初始容量为下限
+     *
+     * @param minCapacity 容量下限
+     * @param maxCapacity 容量上限
+     */
+    public IoArgs(int minCapacity, int maxCapacity) {
+        if (minCapacity <= 0 || maxCapacity < minCapacity) {
+            throw new IllegalArgumentException("Illegal capacity bounds: " + minCapacity + ", " + maxCapacity);
+        }
+
+        this.minCapacity = minCapacity;
+        this.maxCapacity = maxCapacity;
+        this.capacity = minCapacity;
+
+        IoContext context = IoContext.get();
+        pool = context == null ? null : context.getBufferPool();
+    }
 
     /**
      * 从bytes数组进行消费
@@ -46,6 +148,73 @@ public class IoArgs {
         return size;
     }
 
+    /**
+     * 写入至多count个字节的数据到bytes中
+     */
+    public int writeTo(byte[] bytes, int offset, int count) {
+        int size = Math.min(count, buffer.remaining());
+        buffer.get(bytes, offset, size);
+        return size;
+    }
+
+    /**
+     * 从输入流中读取至多count个字节的数据，
+     * 堆内缓冲直接读入其底层数组，直接内存缓冲经由复用的中转数组，不产生临时对象
+     */
+    public int readFrom(InputStream stream, int count) throws IOException {
+        int size = Math.min(count, buffer.remaining());
+        int bytes = 0;
+        while (bytes < size) {
+            int length;
+            if (buffer.hasArray()) {
+                length = stream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), size - bytes);
+                if (length > 0) {
+                    buffer.position(buffer.position() + length);
+                }
+            } else {
+                byte[] transfer = transferBytes();
+                length = stream.read(transfer, 0, Math.min(size - bytes, transfer.length));
+                if (length > 0) {
+                    buffer.put(transfer, 0, length);
+                }
+            }
+            if (length < 0) {
+                throw new EOFException();
+            }
+            bytes += length;
+        }
+        return bytes;
+    }
+
+    /**
+     * 写至多count个字节的数据到输出流中，中转方式同{@link #readFrom(InputStream, int)}
+     */
+    public int writeTo(OutputStream stream, int count) throws IOException {
+        int size = Math.min(count, buffer.remaining());
+        if (buffer.hasArray()) {
+            stream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), size);
+            buffer.position(buffer.position() + size);
+            return size;
+        }
+
+        byte[] transfer = transferBytes();
+        int bytes = 0;
+        while (bytes < size) {
+            int length = Math.min(size - bytes, transfer.length);
+            buffer.get(transfer, 0, length);
+            stream.write(transfer, 0, length);
+            bytes += length;
+        }
+        return bytes;
+    }
+
+    private byte[] transferBytes() {
+        if (transferBytes == null) {
+            transferBytes = new byte[TRANSFER_SIZE];
+        }
+        return transferBytes;
+    }
+
     /**
      * 从可读字节通道中读取数据
      */
@@ -64,6 +233,20 @@ public class IoArgs {
         return bytes;
     }
 
+    /**
+     * 从可读字节通道中读取至多count个字节的数据
+     */
+    public int readFrom(ReadableByteChannel channel, int count) throws IOException {
+        int limit = buffer.limit();
+        // 临时收紧缓冲的上限，读取完成后恢复
+        buffer.limit(Math.min(limit, buffer.position() + count));
+        try {
+            return readFrom(channel);
+        } finally {
+            buffer.limit(limit);
+        }
+    }
+
     /**
      * 写数据到bytes中
      */
@@ -80,52 +263,156 @@ public class IoArgs {
     }
 
     /**
-     * 从通道中读数据
+     * 写至多count个字节的数据到可写字节通道中
+     */
+    public int writeTo(WritableByteChannel channel, int count) throws IOException {
+        int limit = buffer.limit();
+        // 临时收紧缓冲的上限，写出完成后恢复
+        buffer.limit(Math.min(limit, buffer.position() + count));
+        try {
+            return writeTo(channel);
+        } finally {
+            buffer.limit(limit);
+        }
+    }
+
+    /**
+     * 尝试从通道中读取数据，通道暂时没有数据时立即返回，
+     * 已读取的数据保留在缓冲中，可再次调用继续读取，读取结束后需调用{@link #finishWriting()}
      *
      * @param channel 通道
      * @return 读了多少个字节
      * @throws IOException 输入输出异常
      */
-    public int readFrom(SocketChannel channel) throws IOException {
-        startWriting();
-
+    public int tryReadFrom(SocketChannel channel) throws IOException {
         int bytesProduced = 0;
         while (buffer.hasRemaining()) {
             int length = channel.read(buffer);
             if (length < 0) {
                 throw new EOFException();
             }
+            if (length == 0) {
+                // 通道暂时没有更多数据
+                break;
+            }
             bytesProduced += length;
         }
-
-        finishWriting();
         return bytesProduced;
     }
 
     /**
-     * 写数据到通道中
+     * 尝试写数据到通道中，通道暂时不可写时立即返回，未写出的数据保留在缓冲中
      *
      * @param channel 通道
      * @return 写了多少个字节
      * @throws IOException 输入输出异常
      */
-    public int writeTo(SocketChannel channel) throws IOException {
+    public int tryWriteTo(SocketChannel channel) throws IOException {
         int bytes = 0;
         while (buffer.hasRemaining()) {
             int length = channel.write(buffer);
             if (length < 0) {
                 throw new EOFException();
             }
+            if (length == 0) {
+                // 内核发送缓冲区已满
+                return bytes;
+            }
+            bytes += length;
+        }
+
+        // 缓冲写完后，继续传输文件区间
+        while (regionRemaining > 0) {
+            long length = transferRegion(channel);
+            if (length == 0) {
+                break;
+            }
+            regionPosition += length;
+            regionRemaining -= length;
             bytes += length;
         }
         return bytes;
     }
 
+    /**
+     * 传输一次文件区间的数据，文件已被关闭时（如包被取消）以空数据补齐
+     *
+     * @param channel 通道
+     * @return 传输了多少个字节
+     * @throws IOException 输入输出异常
+     */
+    private long transferRegion(SocketChannel channel) throws IOException {
+        if (regionChannel.isOpen()) {
+            try {
+                long length = regionChannel.transferTo(regionPosition, regionRemaining, channel);
+                if (length == 0 && regionPosition >= regionChannel.size()) {
+                    // 文件已被截断
+                    throw new EOFException();
+                }
+                return length;
+            } catch (IOException e) {
+                if (regionChannel.isOpen()) {
+                    throw e;
+                }
+            }
+        }
+
+        ByteBuffer empty = EMPTY_REGION.duplicate();
+        empty.limit((int) Math.min(empty.capacity(), regionRemaining));
+        return channel.write(empty);
+    }
+
+    /**
+     * 在已写入的数据之后附加一段文件区间，从文件通道的当前位置开始，
+     * 写出时由文件通道直接传输到套接字通道，不经过缓冲；
+     * 附加后不能再写入数据
+     *
+     * @param channel 文件通道
+     * @param count   区间长度
+     * @return 附加的长度
+     * @throws IOException 输入输出异常
+     */
+    public int attachFileRegion(FileChannel channel, int count) throws IOException {
+        long position = channel.position();
+        channel.position(position + count);
+
+        regionChannel = channel;
+        regionPosition = position;
+        regionRemaining = count;
+
+        // 关闭缓冲剩余的空间
+        buffer.limit(buffer.position());
+        return count;
+    }
+
+    /**
+     * 是否还有未传输完的文件区间
+     *
+     * @return 是否有文件区间
+     */
+    public boolean hasFileRegion() {
+        return regionRemaining > 0;
+    }
+
     /**
      * 开始写入数据到IoArgs
      */
     public void startWriting() {
-        // 清理缓冲
+        // 容量已调整，丢弃旧缓冲
+        if (isResized) {
+            release();
+            buffer = null;
+            isResized = false;
+        }
+
+        // 按需分配缓冲
+        if (buffer == null) {
+            buffer = pool == null ? ByteBuffer.allocate(capacity) : pool.acquire(capacity);
+        }
+
+        // 清理缓冲与文件区间
+        regionChannel = null;
+        regionRemaining = 0;
         buffer.clear();
         // 定义容纳区间
         buffer.limit(limit);
@@ -137,6 +424,35 @@ public class IoArgs {
     public void finishWriting() {
         // 缓冲区翻转
         buffer.flip();
+
+        if (minCapacity != maxCapacity) {
+            adjustCapacity(buffer.limit());
+        }
+    }
+
+    /**
+     * 根据本次写入的数据量调整容量
+     *
+     * @param size 本次写入的字节数
+     */
+    private void adjustCapacity(int size) {
+        if (size >= capacity) {
+            // 填满了整个缓冲，扩容
+            smallReads = 0;
+            if (capacity < maxCapacity) {
+                capacity = (int) Math.min((long) capacity << 1, maxCapacity);
+                isResized = true;
+            }
+        } else if (size <= capacity >> 1) {
+            // 持续的小数据读写，缩容
+            if (++smallReads >= SHRINK_THRESHOLD && capacity > minCapacity) {
+                smallReads = 0;
+                capacity = Math.max(capacity >> 1, minCapacity);
+                isResized = true;
+            }
+        } else {
+            smallReads = 0;
+        }
     }
 
     /**
@@ -145,7 +461,7 @@ public class IoArgs {
      * @param limit 区间大小
      */
     public void limit(int limit) {
-        this.limit = Math.min(limit, buffer.capacity());
+        this.limit = Math.min(limit, capacity);
     }
 
     public int readLength() {
@@ -153,11 +469,40 @@ public class IoArgs {
     }
 
     public int capacity() {
-        return buffer.capacity();
+        return capacity;
     }
 
     public boolean remained() {
-        return buffer.remaining() > 0;
+        return buffer != null && buffer.remaining() > 0;
+    }
+
+    /**
+     * 缓冲剩余可写入的字节数
+     *
+     * @return 字节数
+     */
+    public int remaining() {
+        return buffer == null ? 0 : buffer.remaining();
+    }
+
+    /**
+     * 写入阶段，缓冲中是否尚未写入任何数据
+     *
+     * @return True：尚未写入
+     */
+    public boolean isEmpty() {
+        return buffer == null || buffer.position() == 0;
+    }
+
+    /**
+     * 将缓冲归还缓冲池，下一次开始写入时重新借出；
+     * 只能在数据全部处理完毕、且没有其他线程持有当前输入输出参数时调用，未使用缓冲池时无操作
+     */
+    public void release() {
+        if (pool != null && buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
     }
 
     public int fillEmpty(int size) {
@@ -1,5 +1,8 @@
 package org.yangxin.socket.lib.core;
 
+import org.yangxin.socket.lib.core.ds.DirectBufferPool;
+import org.yangxin.socket.lib.impl.async.WriteBehindStage;
+
 import java.io.IOException;
 
 /**
@@ -20,14 +23,154 @@ public class IoContext {
      */
     private final IoProvider ioProvider;
 
-    private IoContext(IoProvider ioProvider) {
-        this.ioProvider = ioProvider;
+    /**
+     * 是否在发送线程上直接写出数据
+     */
+    private final boolean isDirectSend;
+
+    /**
+     * 单次读写事件的字节预算
+     */
+    private final int eventBudget;
+
+    /**
+     * 输入输出参数的直接内存缓冲池，为null时使用堆内缓冲
+     */
+    private final DirectBufferPool bufferPool;
+
+    /**
+     * 接收缓冲的容量下限
+     */
+    private final int minReceiveBufferSize;
+
+    /**
+     * 接收缓冲的容量上限
+     */
+    private final int maxReceiveBufferSize;
+
+    /**
+     * 发送缓冲的容量
+     */
+    private final int sendBufferSize;
+
+    /**
+     * 接收文件的后写磁盘阶段，为null时在接收线程上直接写入文件
+     */
+    private final WriteBehindStage writeBehindStage;
+
+    /**
+     * 发送时是否使用16位的扩展标识
+     */
+    private final boolean isExtendedIdentifier;
+
+    /**
+     * 发送时是否将小包以单个紧凑帧发送
+     */
+    private final boolean isCompactFrame;
+
+    /**
+     * 扩展长度的实体帧的帧体长度上限，0：不使用
+     */
+    private final int jumboFrameSize;
+
+    /**
+     * 每个连接同时在途的发送包的数量上限
+     */
+    private final int maxInFlightPackets;
+
+    /**
+     * 每个连接发送队列的容量，队列已满时拒绝新的发送包
+     */
+    private final int sendQueueCapacity;
+
+    /**
+     * 每个连接待发送字节数的低水位，回落到该值及以下时恢复可写
+     */
+    private final long sendLowWatermark;
+
+    /**
+     * 每个连接待发送字节数的高水位，达到该值时不可写
+     */
+    private final long sendHighWatermark;
+
+    private IoContext(StartedBoot boot) {
+        this.ioProvider = boot.provider;
+        this.isDirectSend = boot.isDirectSend;
+        this.eventBudget = boot.eventBudget;
+        this.bufferPool = boot.bufferPool;
+        this.minReceiveBufferSize = boot.minReceiveBufferSize;
+        this.maxReceiveBufferSize = boot.maxReceiveBufferSize;
+        this.sendBufferSize = boot.sendBufferSize;
+        this.writeBehindStage = boot.writeBehindStage;
+        this.isExtendedIdentifier = boot.isExtendedIdentifier;
+        this.isCompactFrame = boot.isCompactFrame;
+        this.jumboFrameSize = boot.jumboFrameSize;
+        this.maxInFlightPackets = boot.maxInFlightPackets;
+        this.sendQueueCapacity = boot.sendQueueCapacity;
+        this.sendLowWatermark = boot.sendLowWatermark;
+        this.sendHighWatermark = boot.sendHighWatermark;
     }
 
     public IoProvider getIoProvider() {
         return ioProvider;
     }
 
+    public boolean isDirectSend() {
+        return isDirectSend;
+    }
+
+    public int getEventBudget() {
+        return eventBudget;
+    }
+
+    public DirectBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public int getMinReceiveBufferSize() {
+        return minReceiveBufferSize;
+    }
+
+    public int getMaxReceiveBufferSize() {
+        return maxReceiveBufferSize;
+    }
+
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public WriteBehindStage getWriteBehindStage() {
+        return writeBehindStage;
+    }
+
+    public boolean isExtendedIdentifier() {
+        return isExtendedIdentifier;
+    }
+
+    public boolean isCompactFrame() {
+        return isCompactFrame;
+    }
+
+    public int getJumboFrameSize() {
+        return jumboFrameSize;
+    }
+
+    public int getMaxInFlightPackets() {
+        return maxInFlightPackets;
+    }
+
+    public int getSendQueueCapacity() {
+        return sendQueueCapacity;
+    }
+
+    public long getSendLowWatermark() {
+        return sendLowWatermark;
+    }
+
+    public long getSendHighWatermark() {
+        return sendHighWatermark;
+    }
+
     /**
      * 返回当前输入输出上下文实例
      *
@@ -62,6 +205,10 @@ public class IoContext {
     private void callClose() throws IOException {
         // 输入输出提供者关闭
         ioProvider.close();
+
+        if (writeBehindStage != null) {
+            writeBehindStage.close();
+        }
     }
 
     /**
@@ -72,6 +219,34 @@ public class IoContext {
 
         private IoProvider provider;
 
+        private boolean isDirectSend;
+
+        private int eventBudget;
+
+        private DirectBufferPool bufferPool;
+
+        private int minReceiveBufferSize = 256;
+
+        private int maxReceiveBufferSize = 256;
+
+        private int sendBufferSize = Frame.FRAME_HEADER_LENGTH + Frame.MAX_CAPACITY;
+
+        private WriteBehindStage writeBehindStage;
+
+        private boolean isExtendedIdentifier;
+
+        private boolean isCompactFrame;
+
+        private int jumboFrameSize;
+
+        private int maxInFlightPackets = 1;
+
+        private int sendQueueCapacity = 1024;
+
+        private long sendLowWatermark = 32 * 1024;
+
+        private long sendHighWatermark = 64 * 1024;
+
         private StartedBoot() {
         }
 
@@ -86,13 +261,191 @@ public class IoContext {
             return this;
         }
 
+        /**
+         * 设置是否在发送线程上直接写出数据，
+         * 连接没有待发送的数据时，由调用发送的线程直接写入通道，通道暂时不可写时才注册写事件
+         *
+         * @param isDirectSend 是否直接发送
+         * @return 启动引导实例
+         */
+        public StartedBoot directSend(boolean isDirectSend) {
+            this.isDirectSend = isDirectSend;
+            return this;
+        }
+
+        /**
+         * 设置单次读写事件的字节预算，
+         * 大于0时一次就绪事件内持续读（写），直到通道暂时不可读（写）或消耗完预算，
+         * 默认为0，即一次就绪事件只读（写）一份输入输出参数
+         *
+         * @param eventBudget 字节预算
+         * @return 启动引导实例
+         */
+        public StartedBoot eventBudget(int eventBudget) {
+            this.eventBudget = eventBudget;
+            return this;
+        }
+
+        /**
+         * 设置输入输出参数的直接内存缓冲池，
+         * 设置后输入输出参数在开始写入时从池中借出缓冲，数据处理完毕后归还，空闲连接不再常驻缓冲
+         *
+         * @param bufferPool 直接内存缓冲池
+         * @return 启动引导实例
+         */
+        public StartedBoot bufferPool(DirectBufferPool bufferPool) {
+            this.bufferPool = bufferPool;
+            return this;
+        }
+
+        /**
+         * 设置每个连接接收缓冲的容量范围，
+         * 读取填满缓冲时扩容，持续的小数据读取后缩容，默认固定为256字节
+         *
+         * @param minSize 容量下限
+         * @param maxSize 容量上限
+         * @return 启动引导实例
+         */
+        public StartedBoot receiveBufferSize(int minSize, int maxSize) {
+            if (minSize <= 0 || maxSize < minSize) {
+                throw new IllegalArgumentException("Illegal receive buffer size: " + minSize + ", " + maxSize);
+            }
+
+            this.minReceiveBufferSize = minSize;
+            this.maxReceiveBufferSize = maxSize;
+            return this;
+        }
+
+        /**
+         * 设置每个连接发送缓冲的容量，
+         * 发送时依次将队列中的帧写入缓冲，直到缓冲已满；非文件的实体帧按缓冲剩余的空间截短，
+         * 默认为一个最大长度的帧加帧头，使实体不必被切分为更小的帧
+         *
+         * @param size 容量，须大于帧头长度
+         * @return 启动引导实例
+         */
+        public StartedBoot sendBufferSize(int size) {
+            if (size <= Frame.FRAME_HEADER_LENGTH) {
+                throw new IllegalArgumentException("Illegal send buffer size: " + size);
+            }
+
+            this.sendBufferSize = size;
+            return this;
+        }
+
+        /**
+         * 设置接收文件的后写磁盘阶段，
+         * 设置后接收到的文件数据由独立的磁盘线程写入，队列已满时暂停对应连接的读取
+         *
+         * @param writeBehindStage 后写磁盘阶段
+         * @return 启动引导实例
+         */
+        public StartedBoot writeBehindStage(WriteBehindStage writeBehindStage) {
+            this.writeBehindStage = writeBehindStage;
+            return this;
+        }
+
+        /**
+         * 设置发送时是否使用16位的扩展标识，
+         * 扩展标识使用帧头的第6个字节作为高8位，单个连接可同时传输的包由255个扩展到65535个；
+         * 接收方总是按16位解析，对端只需同样升级接收逻辑即可
+         *
+         * @param isExtendedIdentifier 是否使用扩展标识
+         * @return 启动引导实例
+         */
+        public StartedBoot extendedIdentifier(boolean isExtendedIdentifier) {
+            this.isExtendedIdentifier = isExtendedIdentifier;
+            return this;
+        }
+
+        /**
+         * 设置是否使用紧凑帧，
+         * 无头部信息且能在一份发送缓冲中写完的包，以一个帧同时携带类型、长度与数据，省去单独的头帧；
+         * 接收方总是能解析紧凑帧，对端只需同样升级接收逻辑即可
+         *
+         * @param isCompactFrame 是否使用紧凑帧
+         * @return 启动引导实例
+         */
+        public StartedBoot compactFrame(boolean isCompactFrame) {
+            this.isCompactFrame = isCompactFrame;
+            return this;
+        }
+
+        /**
+         * 设置扩展长度的实体帧的帧体长度上限，
+         * 连接上没有其它数据等待时，文件的实体以32位长度的帧发送，一帧携带一大段文件区间，减少分帧的开销；
+         * 帧体以至多1MB的文件区间分段传输，与发送缓冲的容量无关；
+         * 发送扩展长度的帧期间新的数据与取消均需等待该帧写完，上限越大等待越久，建议在256KB~1MB之间；
+         * 接收方总是能解析扩展长度的帧，对端只需同样升级接收逻辑即可，默认为0，即不使用
+         *
+         * @param jumboFrameSize 帧体长度上限，0或大于{@link Frame#MAX_CAPACITY}
+         * @return 启动引导实例
+         */
+        public StartedBoot jumboFrameSize(int jumboFrameSize) {
+            if (jumboFrameSize != 0 && jumboFrameSize <= Frame.MAX_CAPACITY) {
+                throw new IllegalArgumentException("Illegal jumbo frame size: " + jumboFrameSize);
+            }
+            this.jumboFrameSize = jumboFrameSize;
+            return this;
+        }
+
+        /**
+         * 设置每个连接同时在途的发送包的数量上限，
+         * 多个包的实体帧交替发送，大文件传输期间的小消息无需等待文件发送完毕，默认为1，即逐个发送
+         *
+         * @param maxInFlightPackets 在途包的数量上限
+         * @return 启动引导实例
+         */
+        public StartedBoot maxInFlightPackets(int maxInFlightPackets) {
+            if (maxInFlightPackets < 1) {
+                throw new IllegalArgumentException("Illegal max in-flight packets: " + maxInFlightPackets);
+            }
+
+            this.maxInFlightPackets = maxInFlightPackets;
+            return this;
+        }
+
+        /**
+         * 设置每个连接发送队列的容量，向上取整到2的幂，默认为1024，
+         * 队列已满时新的发送包被拒绝
+         *
+         * @param sendQueueCapacity 发送队列的容量
+         * @return 启动引导实例
+         */
+        public StartedBoot sendQueueCapacity(int sendQueueCapacity) {
+            if (sendQueueCapacity < 1) {
+                throw new IllegalArgumentException("Illegal send queue capacity: " + sendQueueCapacity);
+            }
+
+            this.sendQueueCapacity = sendQueueCapacity;
+            return this;
+        }
+
+        /**
+         * 设置每个连接待发送字节数的高低水位，默认为32KB与64KB，仅内存包计入，
+         * 达到高水位时连接不可写，回落到低水位及以下时恢复可写
+         *
+         * @param lowWatermark  低水位
+         * @param highWatermark 高水位
+         * @return 启动引导实例
+         */
+        public StartedBoot sendWatermark(long lowWatermark, long highWatermark) {
+            if (lowWatermark < 0 || highWatermark <= lowWatermark) {
+                throw new IllegalArgumentException("Illegal send watermark: " + lowWatermark + ", " + highWatermark);
+            }
+
+            this.sendLowWatermark = lowWatermark;
+            this.sendHighWatermark = highWatermark;
+            return this;
+        }
+
         /**
          * 启动，返回输入输出上下文
          *
          * @return 输入输出上下文
          */
         public IoContext start() {
-            instance = new IoContext(provider);
+            instance = new IoContext(this);
             return instance;
         }
     }
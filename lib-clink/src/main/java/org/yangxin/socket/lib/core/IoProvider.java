@@ -41,6 +41,13 @@ public interface IoProvider extends Closeable {
      */
     void unRegisterOutput(SocketChannel channel);
 
+    /**
+     * 暂停输入，不再监听通道的读事件，直到下一次注册输入
+     *
+     * @param channel 通道
+     */
+    void pauseInput(SocketChannel channel);
+
     /**
      * 处理输入的回调
      */
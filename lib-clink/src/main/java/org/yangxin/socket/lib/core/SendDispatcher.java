@@ -1,6 +1,7 @@
 package org.yangxin.socket.lib.core;
 
 import java.io.Closeable;
+import java.util.function.Predicate;
 
 /**
  * 发送数据的调度者，
@@ -16,8 +17,9 @@ public interface SendDispatcher extends Closeable {
      * 发送一份数据
      *
      * @param packet 数据
+     * @return True：已加入发送队列；False：队列已满或已关闭，数据被拒绝
      */
-    void send(SendPacket<?> packet);
+    boolean send(SendPacket<?> packet);
 
     /**
      * 取消发送数据
@@ -25,4 +27,33 @@ public interface SendDispatcher extends Closeable {
      * @param packet 数据
      */
     void cancel(SendPacket<?> packet);
+
+    /**
+     * 取消所有满足条件的数据，包括队列中的与正在发送的
+     *
+     * @param predicate 条件
+     */
+    void cancelAll(Predicate<SendPacket<?>> predicate);
+
+    /**
+     * 是否可写，待发送的内存包字节数超过高水位后不可写，回落到低水位以下后恢复可写；
+     * 文件等流式包不占用内存，不计入水位；
+     * 不可写时仍可发送，由调用方决定暂停或丢弃
+     *
+     * @return True：可写
+     */
+    boolean isWritable();
+
+    /**
+     * 可写状态变化回调
+     */
+    interface WritabilityChangedCallback {
+
+        /**
+         * 可写状态变化时，在发送或入队的线程上回调
+         *
+         * @param isWritable 当前是否可写
+         */
+        void onWritabilityChanged(boolean isWritable);
+    }
 }
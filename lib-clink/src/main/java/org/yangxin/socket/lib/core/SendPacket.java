@@ -1,6 +1,8 @@
 package org.yangxin.socket.lib.core;
 
 import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * 发送的包定义
@@ -10,16 +12,187 @@ import java.io.InputStream;
  */
 public abstract class SendPacket<T extends InputStream> extends Packet<T> {
 
-    private boolean isCanceled;
+    /**
+     * 低优先级，如后台的文件传输
+     */
+    public static final byte PRIORITY_LOW = -1;
+
+    /**
+     * 默认优先级
+     */
+    public static final byte PRIORITY_NORMAL = 0;
+
+    /**
+     * 高优先级，如聊天、在线状态等对延迟敏感的消息
+     */
+    public static final byte PRIORITY_HIGH = 1;
+
+    /**
+     * 最大权重
+     */
+    public static final int MAX_WEIGHT = 255;
+
+    /**
+     * 待取出：尚未被发送调度者取出发送
+     */
+    private static final int STATE_PENDING = 0;
+
+    /**
+     * 已取出：正在发送
+     */
+    private static final int STATE_TAKEN = 1;
+
+    /**
+     * 在取出前被取消
+     */
+    private static final int STATE_CANCELED = 2;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<SendPacket> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(SendPacket.class, "state");
+
+    private volatile boolean isCanceled;
+
+    /**
+     * 取出与取消的状态，二者通过CAS竞争，只有一方成功
+     */
+    private volatile int state = STATE_PENDING;
+
+    /**
+     * 优先级，同一连接上高优先级包的帧总是先于低优先级包的帧发送
+     */
+    private byte priority = PRIORITY_NORMAL;
+
+    /**
+     * 权重，同一优先级的多个在途包按权重分配每轮可发送的字节数
+     */
+    private int weight = 1;
+
+    /**
+     * 发送结果，需要时通过{@link #attachFuture()}创建
+     */
+    private volatile CompletableFuture<SendResult> future;
+
+    /**
+     * 入队时间与首个字节写出的时间
+     */
+    private volatile long enqueueTime;
+    private volatile long firstByteTime;
+
+    /**
+     * 在途时占用的帧标识，0：不在途；由发送调度者在其锁内读写
+     */
+    private int identifier;
 
     public boolean isCanceled() {
         return isCanceled;
     }
 
+    public byte priority() {
+        return priority;
+    }
+
+    /**
+     * 设置优先级，需在发送前设置
+     *
+     * @param priority 优先级
+     */
+    public void setPriority(byte priority) {
+        this.priority = priority;
+    }
+
+    public int weight() {
+        return weight;
+    }
+
+    /**
+     * 设置权重，需在发送前设置
+     *
+     * @param weight 权重，1~{@link #MAX_WEIGHT}
+     */
+    public void setWeight(int weight) {
+        if (weight < 1 || weight > MAX_WEIGHT) {
+            throw new IllegalArgumentException("Illegal weight: " + weight);
+        }
+
+        this.weight = weight;
+    }
+
+    public int identifier() {
+        return identifier;
+    }
+
+    /**
+     * 设置在途时占用的帧标识，由发送调度者调用
+     *
+     * @param identifier 帧标识，0：不在途
+     */
+    public void setIdentifier(int identifier) {
+        this.identifier = identifier;
+    }
+
+    /**
+     * 创建发送结果，需在发送前调用；
+     * 结果在发送线程上完成，耗时的后续处理应使用异步的回调方法
+     *
+     * @return 发送结果
+     */
+    public synchronized CompletableFuture<SendResult> attachFuture() {
+        if (future == null) {
+            future = new CompletableFuture<>();
+        }
+        return future;
+    }
+
+    /**
+     * 已加入发送队列，由发送调度者调用
+     */
+    public void onEnqueued() {
+        enqueueTime = System.nanoTime();
+    }
+
+    /**
+     * 首个字节已写出，由发送调度者调用
+     */
+    public void onFirstByteWritten() {
+        if (firstByteTime == 0) {
+            firstByteTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * 发送结束，由发送调度者调用，完成发送结果
+     *
+     * @param isSucceed 是否所有数据已写出
+     */
+    public void onCompleted(boolean isSucceed) {
+        CompletableFuture<SendResult> future = this.future;
+        if (future == null) {
+            return;
+        }
+
+        SendResult.Status status = isSucceed
+                ? SendResult.Status.SUCCEED
+                : isCanceled ? SendResult.Status.CANCELED : SendResult.Status.FAILED;
+        future.complete(new SendResult(status, enqueueTime, firstByteTime, isSucceed ? System.nanoTime() : 0));
+    }
+
+    /**
+     * 取出用于发送，由发送调度者调用
+     *
+     * @return True：取出成功；False：已在取出前被取消
+     */
+    public boolean take() {
+        return STATE_UPDATER.compareAndSet(this, STATE_PENDING, STATE_TAKEN);
+    }
+
     /**
      * 设置取消发送标记
+     *
+     * @return True：尚未被取出，由取消方完成该包；False：已被取出，需由发送方终止其发送
      */
-    public void cancel() {
+    public boolean cancel() {
         isCanceled = true;
+        return STATE_UPDATER.compareAndSet(this, STATE_PENDING, STATE_CANCELED);
     }
 }
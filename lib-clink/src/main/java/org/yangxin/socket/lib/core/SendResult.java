@@ -0,0 +1,82 @@
+package org.yangxin.socket.lib.core;
+
+/**
+ * 发送包的发送结果，
+ * 时间均取自{@link System#nanoTime()}，仅用于计算时间差
+ *
+ * @author yangxin
+ * 2026/10/18 下午9:10
+ */
+public class SendResult {
+
+    /**
+     * 发送状态
+     */
+    public enum Status {
+
+        /**
+         * 所有数据已写出
+         */
+        SUCCEED,
+
+        /**
+         * 被取消
+         */
+        CANCELED,
+
+        /**
+         * 被拒绝（发送队列已满）或连接已关闭
+         */
+        FAILED
+    }
+
+    private final Status status;
+
+    private final long enqueueTime;
+
+    private final long firstByteTime;
+
+    private final long lastByteTime;
+
+    public SendResult(Status status, long enqueueTime, long firstByteTime, long lastByteTime) {
+        this.status = status;
+        this.enqueueTime = enqueueTime;
+        this.firstByteTime = firstByteTime;
+        this.lastByteTime = lastByteTime;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSucceed() {
+        return status == Status.SUCCEED;
+    }
+
+    /**
+     * 入队时间
+     *
+     * @return 时间，未入队时为0
+     */
+    public long getEnqueueTime() {
+        return enqueueTime;
+    }
+
+    /**
+     * 首个字节写出的时间
+     *
+     * @return 时间，未写出任何数据时为0
+     */
+    public long getFirstByteTime() {
+        return firstByteTime;
+    }
+
+    /**
+     * 最后一个字节写出的时间
+     *
+     * @return 时间，未发送成功时为0
+     */
+    public long getLastByteTime() {
+        return lastByteTime;
+    }
+}
@@ -24,4 +24,13 @@ public interface Sender extends Closeable {
      * @throws IOException io异常
      */
     boolean postSendAsync() throws IOException;
+
+    /**
+     * 在调用线程上直接发送，直到没有数据可发送或通道暂时不可写，
+     * 通道暂时不可写时转为异步发送
+     *
+     * @return 是否发送成功
+     * @throws IOException io异常
+     */
+    boolean postSendDirect() throws IOException;
 }
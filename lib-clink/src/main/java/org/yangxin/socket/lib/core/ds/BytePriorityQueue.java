@@ -0,0 +1,300 @@
+package org.yangxin.socket.lib.core.ds;
+
+/**
+ * 按字节优先级分桶的队列，
+ * 每个优先级一个先进先出的环形数组，并用位图记录非空的优先级，
+ * 入队、出队、按键移除均为O(1)；高优先级先出，同一优先级内先进先出；
+ * 出队或被跳过的节点回收复用，稳定运行时入队不再创建对象；
+ * 非线程安全，由调用方加锁
+ *
+ * @author yangxin
+ * 2026/10/18 下午7:20
+ */
+public class BytePriorityQueue<Item> {
+
+    /**
+     * 不参与按键移除的元素使用的键
+     */
+    public static final int NO_KEY = -1;
+
+    /**
+     * 优先级数量，覆盖byte的全部取值
+     */
+    private static final int LEVEL_COUNT = 256;
+
+    /**
+     * 每个优先级的环形数组初始容量
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * 各优先级的环形数组，下标为优先级加128，首次使用时创建
+     */
+    private final Ring[] rings = new Ring[LEVEL_COUNT];
+
+    /**
+     * 非空优先级的位图
+     */
+    private final long[] bitmap = new long[LEVEL_COUNT / 64];
+
+    /**
+     * 按键索引的入队元素
+     */
+    private final IdentifierTable<Entry> index = new IdentifierTable<>();
+
+    /**
+     * 当前元素数量
+     */
+    private int size;
+
+    /**
+     * 回收的节点，以单链表相连
+     */
+    private Entry recycled;
+
+    /**
+     * 入队
+     *
+     * @param item     元素
+     * @param priority 优先级
+     * @param key      用于移除的键，不需要时使用{@link #NO_KEY}
+     */
+    public void offer(Item item, byte priority, int key) {
+        int level = priority + 128;
+        Ring ring = rings[level];
+        if (ring == null) {
+            ring = new Ring(this);
+            rings[level] = ring;
+        }
+
+        Entry entry = obtainEntry(item, level, key);
+        ring.offer(entry);
+        if (ring.live++ == 0) {
+            bitmap[level >> 6] |= 1L << (level & 63);
+        }
+        if (key != NO_KEY) {
+            index.put(key, entry);
+        }
+        size++;
+    }
+
+    /**
+     * 出队优先级最高的元素
+     *
+     * @return 元素，队列为空时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public Item poll() {
+        int level = highestLevel();
+        if (level < 0) {
+            return null;
+        }
+
+        Ring ring = rings[level];
+        Entry entry = ring.poll();
+        Item item = (Item) entry.item;
+        entry.item = null;
+        if (entry.key != NO_KEY && index.get(entry.key) == entry) {
+            index.remove(entry.key);
+        }
+        recycle(entry);
+        onRemoved(ring, level);
+        return item;
+    }
+
+    /**
+     * 按键移除元素
+     *
+     * @param key 入队时的键
+     * @return 被移除的元素，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public Item remove(int key) {
+        Entry entry = index.remove(key);
+        if (entry == null || entry.item == null) {
+            return null;
+        }
+
+        Item item = (Item) entry.item;
+        // 只做标记，出队时跳过
+        entry.item = null;
+        onRemoved(rings[entry.level], entry.level);
+        return item;
+    }
+
+    /**
+     * 当前最高的优先级，调用前须确认队列不为空
+     *
+     * @return 优先级
+     */
+    public byte highestPriority() {
+        return (byte) (highestLevel() - 128);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 清空所有元素
+     */
+    public void clear() {
+        for (int i = 0; i < LEVEL_COUNT; i++) {
+            rings[i] = null;
+        }
+        for (int i = 0; i < bitmap.length; i++) {
+            bitmap[i] = 0;
+        }
+        index.clear();
+        size = 0;
+    }
+
+    private Entry obtainEntry(Object item, int level, int key) {
+        Entry entry = recycled;
+        if (entry == null) {
+            return new Entry(item, level, key);
+        }
+
+        recycled = entry.next;
+        entry.next = null;
+        entry.item = item;
+        entry.level = level;
+        entry.key = key;
+        return entry;
+    }
+
+    /**
+     * 回收已离开环形数组的节点
+     *
+     * @param entry 节点
+     */
+    private void recycle(Entry entry) {
+        entry.item = null;
+        entry.next = recycled;
+        recycled = entry;
+    }
+
+    private void onRemoved(Ring ring, int level) {
+        size--;
+        if (--ring.live == 0) {
+            bitmap[level >> 6] &= ~(1L << (level & 63));
+            // 只剩移除标记，直接复位
+            ring.reset();
+        }
+    }
+
+    /**
+     * 得到最高的非空优先级
+     *
+     * @return 下标，全部为空时返回-1
+     */
+    private int highestLevel() {
+        for (int i = bitmap.length - 1; i >= 0; i--) {
+            long bits = bitmap[i];
+            if (bits != 0) {
+                return (i << 6) + 63 - Long.numberOfLeadingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 入队的元素，移除时将元素置空作为标记
+     */
+    private static class Entry {
+
+        private Object item;
+
+        private int level;
+
+        private int key;
+
+        /**
+         * 回收链表中的下一个节点
+         */
+        private Entry next;
+
+        Entry(Object item, int level, int key) {
+            this.item = item;
+            this.level = level;
+            this.key = key;
+        }
+    }
+
+    /**
+     * 单个优先级的环形数组，容量为2的幂，满时成倍扩容
+     */
+    private static class Ring {
+
+        /**
+         * 所属的队列，用于回收节点
+         */
+        private final BytePriorityQueue<?> owner;
+
+
+        private Entry[] entries = new Entry[INITIAL_CAPACITY];
+
+        private int head;
+
+        private int tail;
+
+        /**
+         * 未被移除的元素数量
+         */
+        private int live;
+
+        Ring(BytePriorityQueue<?> owner) {
+            this.owner = owner;
+        }
+
+        void offer(Entry entry) {
+            entries[tail] = entry;
+            tail = (tail + 1) & (entries.length - 1);
+            if (tail == head) {
+                grow();
+            }
+        }
+
+        /**
+         * 出队第一个未被移除的元素，调用前须确认live大于0
+         *
+         * @return 元素
+         */
+        Entry poll() {
+            while (true) {
+                Entry entry = entries[head];
+                entries[head] = null;
+                head = (head + 1) & (entries.length - 1);
+                if (entry.item != null) {
+                    return entry;
+                }
+                // 跳过已移除的节点
+                owner.recycle(entry);
+            }
+        }
+
+        void reset() {
+            while (head != tail) {
+                owner.recycle(entries[head]);
+                entries[head] = null;
+                head = (head + 1) & (entries.length - 1);
+            }
+            head = 0;
+            tail = 0;
+        }
+
+        private void grow() {
+            Entry[] newEntries = new Entry[entries.length << 1];
+            int count = entries.length - head;
+            System.arraycopy(entries, head, newEntries, 0, count);
+            System.arraycopy(entries, 0, newEntries, count, head);
+            head = 0;
+            tail = entries.length;
+            entries = newEntries;
+        }
+    }
+}
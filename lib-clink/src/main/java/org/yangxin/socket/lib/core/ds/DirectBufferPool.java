@@ -0,0 +1,218 @@
+package org.yangxin.socket.lib.core.ds;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 直接内存缓冲池，
+ * 按2的幂划分容量级别，每个级别从整块的直接内存（slab）中切分出固定大小的缓冲，
+ * 输入输出线程归还的缓冲优先放入当前线程的本地缓存，本地缓存已满时放回全局空闲队列；
+ * 其它线程（如直接发送时的业务线程、磁盘线程）不使用本地缓存，借出与归还均直接经过全局空闲队列，
+ * 避免缓冲滞留在输入输出线程无法取用的缓存中
+ *
+ * @author yangxin
+ * 2026/10/18 下午2:20
+ */
+public class DirectBufferPool {
+
+    /**
+     * 最小的容量级别
+     */
+    private static final int MIN_BUFFER_SIZE = 256;
+
+    /**
+     * 最小容量级别对应的位移
+     */
+    private static final int MIN_BUFFER_SHIFT = Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+
+    /**
+     * 所有的容量级别
+     */
+    private final SizeClass[] sizeClasses;
+
+    /**
+     * 每次向系统申请的直接内存块大小
+     */
+    private final int slabSize;
+
+    /**
+     * 每个输入输出线程每个容量级别最多缓存的缓冲数量
+     */
+    private final int threadCacheSize;
+
+    /**
+     * 当前线程是否为输入输出线程，只有输入输出线程使用本地缓存
+     */
+    private static final ThreadLocal<Boolean> IS_IO_THREAD = new ThreadLocal<>();
+
+    /**
+     * 线程本地缓存
+     */
+    private final ThreadLocal<ThreadCache> threadCache = new ThreadLocal<ThreadCache>() {
+
+        @Override
+        protected ThreadCache initialValue() {
+            return new ThreadCache(sizeClasses.length);
+        }
+    };
+
+    /**
+     * 默认缓冲池：最大缓冲128KB，每块直接内存1MB，每个输入输出线程每个级别缓存32个缓冲
+     */
+    public DirectBufferPool() {
+        this(128 * 1024, 1024 * 1024, 32);
+    }
+
+    /**
+     * @param maxBufferSize   池化的最大缓冲容量，超出该容量的申请直接分配且不回收
+     * @param slabSize        每次向系统申请的直接内存块大小
+     * @param threadCacheSize 每个输入输出线程每个容量级别最多缓存的缓冲数量
+     */
+    public DirectBufferPool(int maxBufferSize, int slabSize, int threadCacheSize) {
+        if (maxBufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Max buffer size must not be less than " + MIN_BUFFER_SIZE);
+        }
+
+        int count = sizeClassIndex(maxBufferSize) + 1;
+        sizeClasses = new SizeClass[count];
+        for (int i = 0; i < count; i++) {
+            sizeClasses[i] = new SizeClass(MIN_BUFFER_SIZE << i);
+        }
+        this.slabSize = slabSize;
+        this.threadCacheSize = threadCacheSize;
+    }
+
+    /**
+     * 标记当前线程为输入输出线程，由事件循环与输入输出线程池的线程在开始运行时调用
+     */
+    public static void markIoThread() {
+        IS_IO_THREAD.set(Boolean.TRUE);
+    }
+
+    /**
+     * 借出一份缓冲，缓冲处于清空状态，容量为不小于申请容量的最小级别
+     *
+     * @param capacity 申请的容量
+     * @return 缓冲
+     */
+    public ByteBuffer acquire(int capacity) {
+        int index = sizeClassIndex(capacity);
+        if (index >= sizeClasses.length) {
+            // 超出池化范围，直接分配
+            return ByteBuffer.allocateDirect(capacity);
+        }
+
+        ThreadCache cache = localCache();
+        ByteBuffer buffer = cache == null ? null : cache.buffers[index].poll();
+        if (buffer == null) {
+            buffer = sizeClasses[index].acquire(slabSize);
+        }
+
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 归还一份缓冲，归还后调用方不得再使用该缓冲
+     *
+     * @param buffer 缓冲
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (!buffer.isDirect() || Integer.bitCount(capacity) != 1 || capacity < MIN_BUFFER_SIZE) {
+            return;
+        }
+
+        int index = sizeClassIndex(capacity);
+        if (index >= sizeClasses.length) {
+            return;
+        }
+
+        ThreadCache cache = localCache();
+        if (cache != null && cache.buffers[index].size() < threadCacheSize) {
+            cache.buffers[index].push(buffer);
+        } else {
+            sizeClasses[index].freeBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * 得到当前线程的本地缓存
+     *
+     * @return 本地缓存，非输入输出线程为null
+     */
+    private ThreadCache localCache() {
+        return IS_IO_THREAD.get() == Boolean.TRUE ? threadCache.get() : null;
+    }
+
+    /**
+     * 得到容量所属的级别下标
+     *
+     * @param capacity 容量
+     * @return 级别下标
+     */
+    private static int sizeClassIndex(int capacity) {
+        if (capacity <= MIN_BUFFER_SIZE) {
+            return 0;
+        }
+
+        // 向上取整到2的幂
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_BUFFER_SHIFT;
+    }
+
+    /**
+     * 容量级别
+     */
+    private static class SizeClass {
+
+        /**
+         * 当前级别的缓冲容量
+         */
+        private final int bufferSize;
+
+        /**
+         * 全局空闲缓冲
+         */
+        private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+
+        SizeClass(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        ByteBuffer acquire(int slabSize) {
+            ByteBuffer buffer = freeBuffers.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+
+            // 申请一块新的直接内存，切分后除返回的缓冲外全部放入空闲队列
+            int count = Math.max(1, slabSize / bufferSize);
+            ByteBuffer slab = ByteBuffer.allocateDirect(count * bufferSize);
+            for (int i = 1; i < count; i++) {
+                slab.limit((i + 1) * bufferSize).position(i * bufferSize);
+                freeBuffers.offer(slab.slice());
+            }
+
+            slab.limit(bufferSize).position(0);
+            return slab.slice();
+        }
+    }
+
+    /**
+     * 线程本地缓存，每个容量级别一个栈
+     */
+    private static class ThreadCache {
+
+        private final ArrayDeque<ByteBuffer>[] buffers;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ThreadCache(int count) {
+            buffers = new ArrayDeque[count];
+            for (int i = 0; i < count; i++) {
+                buffers[i] = new ArrayDeque<>();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.yangxin.socket.lib.core.ds;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 以帧标识为下标的查找表，
+ * 存取均为O(1)，数组按实际使用到的最大标识成倍扩容，最大不超过65536个元素；
+ * 非线程安全，由调用方加锁
+ *
+ * @author yangxin
+ * 2026/10/18 下午5:05
+ */
+public class IdentifierTable<Item> {
+
+    /**
+     * 初始容量，覆盖标准模式的全部标识
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * 最大容量，覆盖扩展模式的全部标识
+     */
+    private static final int MAX_CAPACITY = 65536;
+
+    private Object[] items = new Object[INITIAL_CAPACITY];
+
+    /**
+     * 当前元素数量
+     */
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public Item get(int identifier) {
+        return identifier < items.length ? (Item) items[identifier] : null;
+    }
+
+    /**
+     * 放入元素
+     *
+     * @param identifier 标识
+     * @param item       元素
+     * @return 该标识原有的元素
+     */
+    @SuppressWarnings("unchecked")
+    public Item put(int identifier, Item item) {
+        if (identifier < 0 || identifier >= MAX_CAPACITY) {
+            throw new IllegalArgumentException("Illegal identifier: " + identifier);
+        }
+
+        if (identifier >= items.length) {
+            int capacity = items.length;
+            while (capacity <= identifier) {
+                capacity <<= 1;
+            }
+            Object[] newItems = new Object[capacity];
+            System.arraycopy(items, 0, newItems, 0, items.length);
+            items = newItems;
+        }
+
+        Item old = (Item) items[identifier];
+        items[identifier] = item;
+        if (old == null) {
+            size++;
+        }
+        return old;
+    }
+
+    /**
+     * 移除元素
+     *
+     * @param identifier 标识
+     * @return 被移除的元素
+     */
+    @SuppressWarnings("unchecked")
+    public Item remove(int identifier) {
+        if (identifier >= items.length) {
+            return null;
+        }
+
+        Item old = (Item) items[identifier];
+        if (old != null) {
+            items[identifier] = null;
+            size--;
+        }
+        return old;
+    }
+
+    /**
+     * 得到所有元素
+     *
+     * @return 元素列表
+     */
+    @SuppressWarnings("unchecked")
+    public List<Item> values() {
+        List<Item> values = new ArrayList<>(size);
+        for (int i = 0; i < items.length && values.size() < size; i++) {
+            if (items[i] != null) {
+                values.add((Item) items[i]);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 清空所有元素
+     */
+    public void clear() {
+        items = new Object[INITIAL_CAPACITY];
+        size = 0;
+    }
+}
@@ -0,0 +1,135 @@
+package org.yangxin.socket.lib.core.ds;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 有界的无锁环形队列，
+ * 每个槽位带一个序号，生产者与消费者分别通过CAS推进队尾与队头，入队、出队均不加锁且不分配对象；
+ * 供多个生产者并发入队，通常只有一个消费者，但也允许少量并发出队
+ *
+ * @author yangxin
+ * 2026/10/18 下午8:05
+ */
+public class RingBufferQueue<Item> {
+
+    private final int mask;
+
+    private final AtomicReferenceArray<Item> items;
+
+    /**
+     * 槽位序号：等于入队位置时可写，等于入队位置+1时可读
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * 下一个入队位置
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个出队位置
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity 容量，向上取整到2的幂
+     */
+    public RingBufferQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        mask = size - 1;
+        items = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 入队
+     *
+     * @param item 元素
+     * @return False：队列已满
+     */
+    public boolean offer(Item item) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.lazySet(index, item);
+                    // 发布槽位，消费者可见
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                // 槽位尚未被消费，已绕回一圈
+                return false;
+            }
+            // 其它生产者已占用该位置，重试
+        }
+    }
+
+    /**
+     * 出队
+     *
+     * @return 元素，队列为空（或队头的元素尚未发布完成）时返回null
+     */
+    public Item poll() {
+        while (true) {
+            long position = head.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    Item item = items.get(index);
+                    items.lazySet(index, null);
+                    // 释放槽位，供下一圈的生产者写入
+                    sequences.set(index, position + mask + 1);
+                    return item;
+                }
+            } else if (difference < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 遍历队列中的元素，不出队；
+     * 并发入队、出队时仅为近似的快照，可能遗漏或重复
+     *
+     * @param action 对每个元素的操作
+     */
+    public void forEach(Consumer<? super Item> action) {
+        long end = tail.get();
+        for (long position = head.get(); position < end; position++) {
+            Item item = items.get((int) position & mask);
+            if (item != null) {
+                action.accept(item);
+            }
+        }
+    }
+
+    /**
+     * 是否为空，按队头槽位的序号判断，与{@link #poll()}一致：
+     * 队头的元素已被占用但尚未发布时同样视为空，由发布它的生产者负责后续处理；
+     * 并发入队、出队时仅为近似值
+     *
+     * @return True：为空
+     */
+    public boolean isEmpty() {
+        long position = head.get();
+        return sequences.get((int) position & mask) - (position + 1) < 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
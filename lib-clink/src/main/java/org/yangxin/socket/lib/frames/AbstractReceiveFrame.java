@@ -21,6 +21,16 @@ public abstract class AbstractReceiveFrame extends Frame {
         bodyRemaining = getBodyLength();
     }
 
+    /**
+     * 以新的帧头复用当前帧对象，只在上一帧处理完之后调用
+     *
+     * @param header 帧头
+     */
+    void reset(byte[] header) {
+        setHeader(header);
+        bodyRemaining = getBodyLength();
+    }
+
     @Override
     public synchronized boolean handle(IoArgs args) throws IOException {
         if (bodyRemaining == 0) {
@@ -14,44 +14,55 @@ public abstract class AbstractSendFrame extends Frame {
     /**
      * 帧头剩余的长度
      */
-    volatile byte headerRemaining = Frame.FRAME_HEADER_LENGTH;
+    volatile byte headerRemaining;
 
     /**
      * 帧体剩余的长度
      */
     volatile int bodyRemaining;
 
-    public AbstractSendFrame(int length, byte type, byte flag, short identifier) {
+    public AbstractSendFrame(int length, byte type, byte flag, int identifier) {
         super(length, type, flag, identifier);
 
-        // 设置帧体剩余的长度
+        // 设置帧头与帧体剩余的长度
+        headerRemaining = (byte) getHeaderLength();
         bodyRemaining = length;
     }
 
+    /**
+     * 以新的帧头复用当前帧对象
+     *
+     * @param length     帧体长度
+     * @param type       类型
+     * @param flag       Flag
+     * @param identifier 标识
+     */
+    protected void reset(int length, byte type, byte flag, int identifier) {
+        setHeader(length, type, flag, identifier);
+        headerRemaining = (byte) getHeaderLength();
+        bodyRemaining = length;
+    }
+
+    /**
+     * 在输入输出参数剩余的空间内写入当前帧尚未写入的数据，
+     * 输入输出参数的开始与结束由调用方负责，以便多个帧依次写入同一份输入输出参数
+     */
     @Override
     public synchronized boolean handle(IoArgs args) throws IOException {
-        try {
-            // 设置输入输出参数写的字节数
-            args.limit(headerRemaining + bodyRemaining);
-            args.startWriting();
-
-            // 如果帧头还未被消费完，并且输入输出参数仍有剩余
-            if (headerRemaining > 0 && args.remained()) {
-                // 消费头部，并且更新头部剩余
-                headerRemaining -= consumeHeader(args);
-            }
-
-            // 如果帧头已被消费完，并且输入输出参数仍有剩余，并且帧体还未被消费完
-            if (headerRemaining == 0 && args.remained() && bodyRemaining > 0) {
-                // 消费帧体
-                bodyRemaining -= consumeBody(args);
-            }
-
-            // 返回当前帧是否已被消费完
-            return headerRemaining == 0 && bodyRemaining == 0;
-        } finally {
-            args.finishWriting();
+        // 如果帧头还未被消费完，并且输入输出参数仍有剩余
+        if (headerRemaining > 0 && args.remained()) {
+            // 消费头部，并且更新头部剩余
+            headerRemaining -= consumeHeader(args);
         }
+
+        // 如果帧头已被消费完，并且输入输出参数仍有剩余，并且帧体还未被消费完
+        if (headerRemaining == 0 && args.remained() && bodyRemaining > 0) {
+            // 消费帧体
+            bodyRemaining -= consumeBody(args);
+        }
+
+        // 返回当前帧是否已被消费完
+        return headerRemaining == 0 && bodyRemaining == 0;
     }
 
     @Override
@@ -67,12 +78,12 @@ public abstract class AbstractSendFrame extends Frame {
      */
     private byte consumeHeader(IoArgs args) {
         int count = headerRemaining;
-        int offset = header.length - count;
+        int offset = getHeaderLength() - count;
         return (byte) args.readFrom(header, offset, count);
     }
 
     /**
-     * 消费帧体体
+     * 消费帧体，写入的数据不能超过帧体剩余的长度
      *
      * @param args 输入输出参数
      * @return 消费了多少个字节
@@ -80,12 +91,23 @@ public abstract class AbstractSendFrame extends Frame {
      */
     protected abstract int consumeBody(IoArgs args) throws IOException;
 
+    /**
+     * 缩短帧体，只能在帧头写出之前调用
+     *
+     * @param length 新的帧体长度
+     */
+    protected void shrinkBody(int length) {
+        header[0] = (byte) (length >> 8);
+        header[1] = (byte) length;
+        bodyRemaining = length;
+    }
+
     /**
      * 当前帧是否已处于发送状态
      *
      * @return 帧是否发送
      */
     protected synchronized boolean isSending() {
-        return headerRemaining < Frame.FRAME_HEADER_LENGTH;
+        return headerRemaining < getHeaderLength();
     }
 }
@@ -17,11 +17,32 @@ public abstract class AbstractSendPacketFrame extends AbstractSendFrame {
      */
     protected volatile SendPacket<?> packet;
 
-    public AbstractSendPacketFrame(int length, byte type, byte flag, short identifier, SendPacket<?> packet) {
+    public AbstractSendPacketFrame(int length, byte type, byte flag, int identifier, SendPacket<?> packet) {
         super(length, type, flag, identifier);
         this.packet = packet;
     }
 
+    /**
+     * 以新的帧头与发送包复用当前帧对象
+     *
+     * @param length     帧体长度
+     * @param type       类型
+     * @param flag       Flag
+     * @param identifier 标识
+     * @param packet     发送包
+     */
+    protected synchronized void reset(int length, byte type, byte flag, int identifier, SendPacket<?> packet) {
+        reset(length, type, flag, identifier);
+        this.packet = packet;
+    }
+
+    /**
+     * 回收前释放对发送包的引用
+     */
+    synchronized void clear() {
+        packet = null;
+    }
+
     /**
      * 获取当前对应的发送Packet
      *
@@ -11,10 +11,19 @@ import org.yangxin.socket.lib.core.IoArgs;
  */
 public class CancelSendFrame extends AbstractSendFrame {
 
-    public CancelSendFrame(short identifier) {
+    public CancelSendFrame(int identifier) {
         super(0, Frame.TYPE_COMMAND_SEND_CANCEL, Frame.FLAG_NONE, identifier);
     }
 
+    /**
+     * 复用当前帧对象
+     *
+     * @param identifier 被取消的包的标识
+     */
+    void reset(int identifier) {
+        reset(0, Frame.TYPE_COMMAND_SEND_CANCEL, Frame.FLAG_NONE, identifier);
+    }
+
     @Override
     protected int consumeBody(IoArgs args) {
         return 0;
@@ -0,0 +1,32 @@
+package org.yangxin.socket.lib.frames;
+
+/**
+ * 紧凑帧，帧体即整个Packet的数据，收完本帧即收完Packet
+ *
+ * @author yangxin
+ * 2026/10/18 下午10:26
+ */
+public class ReceiveCompactFrame extends ReceiveEntityFrame {
+
+    public ReceiveCompactFrame(byte[] header) {
+        super(header);
+    }
+
+    /**
+     * Packet的类型，存放于帧头的Flag
+     *
+     * @return 类型
+     */
+    public byte getPacketType() {
+        return getBodyFlag();
+    }
+
+    /**
+     * Packet的长度，即帧体长度
+     *
+     * @return 长度
+     */
+    public long getPacketLength() {
+        return getBodyLength();
+    }
+}
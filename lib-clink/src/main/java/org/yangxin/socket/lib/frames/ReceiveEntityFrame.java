@@ -3,6 +3,7 @@ package org.yangxin.socket.lib.frames;
 import org.yangxin.socket.lib.core.IoArgs;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.channels.WritableByteChannel;
 
 /**
@@ -13,16 +14,35 @@ public class ReceiveEntityFrame extends AbstractReceiveFrame {
 
     private WritableByteChannel channel;
 
+    /**
+     * 非文件的Packet直接写入其输出流，不经过通道包装
+     */
+    private OutputStream stream;
+
     public ReceiveEntityFrame(byte[] header) {
         super(header);
     }
 
+    @Override
+    void reset(byte[] header) {
+        super.reset(header);
+        channel = null;
+        stream = null;
+    }
+
     public void bindPacketChannel(WritableByteChannel channel) {
         this.channel = channel;
     }
 
+    public void bindPacketStream(OutputStream stream) {
+        this.stream = stream;
+    }
+
     @Override
     protected int consumeBody(IoArgs args) throws IOException {
-        return channel == null ? args.setEmpty(bodyRemaining) : args.writeTo(channel);
+        if (channel != null) {
+            return args.writeTo(channel, bodyRemaining);
+        }
+        return stream == null ? args.setEmpty(bodyRemaining) : args.writeTo(stream, bodyRemaining);
     }
 }
@@ -1,7 +1,6 @@
 package org.yangxin.socket.lib.frames;
 
 import org.yangxin.socket.lib.core.Frame;
-import org.yangxin.socket.lib.core.IoArgs;
 
 /**
  * @author yangxin
@@ -9,19 +8,42 @@ import org.yangxin.socket.lib.core.IoArgs;
  */
 public class ReceiveFrameFactory {
 
-    public static AbstractReceiveFrame createInstance(IoArgs args) {
-        byte[] buffer = new byte[Frame.FRAME_HEADER_LENGTH];
-        args.writeTo(buffer, 0);
+    /**
+     * 复用的帧，每种类型一个，首次使用时创建
+     */
+    private CancelReceiveFrame cancelFrame;
+    private ReceiveHeaderFrame headerFrame;
+    private ReceiveEntityFrame entityFrame;
+    private ReceiveCompactFrame compactFrame;
+
+    /**
+     * 根据完整的帧头得到接收帧，复用本工厂持有的同类型帧对象，稳定接收时不再创建对象；
+     * 同一时刻只能有一个帧在使用，上一帧处理完之后才能得到下一帧
+     *
+     * @param buffer 帧头
+     * @return 接收帧
+     */
+    public AbstractReceiveFrame obtain(byte[] buffer) {
         byte type = buffer[2];
+        AbstractReceiveFrame frame;
         switch (type) {
             case Frame.TYPE_COMMAND_SEND_CANCEL:
-                return new CancelReceiveFrame(buffer);
+                frame = cancelFrame == null ? cancelFrame = new CancelReceiveFrame(buffer) : cancelFrame;
+                break;
             case Frame.TYPE_PACKET_HEADER:
-                return new ReceiveHeaderFrame(buffer);
+                frame = headerFrame == null ? headerFrame = new ReceiveHeaderFrame(buffer) : headerFrame;
+                break;
             case Frame.TYPE_PACKET_ENTITY:
-                return new ReceiveEntityFrame(buffer);
+                frame = entityFrame == null ? entityFrame = new ReceiveEntityFrame(buffer) : entityFrame;
+                break;
+            case Frame.TYPE_PACKET_COMPACT:
+                frame = compactFrame == null ? compactFrame = new ReceiveCompactFrame(buffer) : compactFrame;
+                break;
             default:
                 throw new UnsupportedOperationException("Unsupported frame type: " + type);
         }
+
+        frame.reset(buffer);
+        return frame;
     }
 }
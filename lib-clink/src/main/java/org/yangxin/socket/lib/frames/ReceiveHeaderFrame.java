@@ -8,17 +8,28 @@ import org.yangxin.socket.lib.core.IoArgs;
  */
 public class ReceiveHeaderFrame extends AbstractReceiveFrame {
 
-    private final byte[] body;
+    /**
+     * 帧体数组，复用当前帧时容量不足才重新分配
+     */
+    private byte[] body;
 
     public ReceiveHeaderFrame(byte[] header) {
         super(header);
         body = new byte[bodyRemaining];
     }
 
+    @Override
+    void reset(byte[] header) {
+        super.reset(header);
+        if (body.length < bodyRemaining) {
+            body = new byte[bodyRemaining];
+        }
+    }
+
     @Override
     protected int consumeBody(IoArgs args) {
-        int offset = body.length - bodyRemaining;
-        return args.writeTo(body, offset);
+        int offset = getBodyLength() - bodyRemaining;
+        return args.writeTo(body, offset, bodyRemaining);
     }
 
     public long getPacketLength() {
@@ -34,8 +45,9 @@ public class ReceiveHeaderFrame extends AbstractReceiveFrame {
     }
 
     public byte[] getPacketHeaderInfo() {
-        if (body.length > SendHeaderFrame.PACKET_HEADER_FRAME_MIN_LENGTH) {
-            byte[] headerInfo = new byte[body.length - SendHeaderFrame.PACKET_HEADER_FRAME_MIN_LENGTH];
+        int length = getBodyLength();
+        if (length > SendHeaderFrame.PACKET_HEADER_FRAME_MIN_LENGTH) {
+            byte[] headerInfo = new byte[length - SendHeaderFrame.PACKET_HEADER_FRAME_MIN_LENGTH];
             System.arraycopy(body,
                     SendHeaderFrame.PACKET_HEADER_FRAME_MIN_LENGTH, headerInfo, 0, headerInfo.length);
             return headerInfo;
@@ -0,0 +1,76 @@
+package org.yangxin.socket.lib.frames;
+
+import org.yangxin.socket.lib.core.Frame;
+import org.yangxin.socket.lib.core.IoArgs;
+import org.yangxin.socket.lib.core.SendPacket;
+
+import java.io.IOException;
+
+/**
+ * 紧凑帧，一个帧发送整个Packet：
+ * 帧头的长度即Packet的长度，Flag即Packet的类型，帧体为Packet的全部数据，没有后续帧
+ *
+ * @author yangxin
+ * 2026/10/18 下午10:20
+ */
+public class SendCompactFrame extends AbstractSendPacketFrame {
+
+    public SendCompactFrame(int identifier, SendPacket<?> packet) {
+        super((int) packet.length(),
+                Frame.TYPE_PACKET_COMPACT,
+                packet.type(),
+                identifier,
+                packet);
+    }
+
+    /**
+     * 复用当前帧对象
+     *
+     * @param identifier 标识
+     * @param packet     发送包
+     */
+    synchronized void reset(int identifier, SendPacket<?> packet) {
+        reset((int) packet.length(), Frame.TYPE_PACKET_COMPACT, packet.type(), identifier, packet);
+    }
+
+    /**
+     * 是否可以使用紧凑帧发送：无头部信息，且整帧能写入一份发送缓冲
+     *
+     * @param packet         发送包
+     * @param bufferCapacity 发送缓冲的容量
+     * @return True：可以
+     */
+    public static boolean isSuitable(SendPacket<?> packet, int bufferCapacity) {
+        long length = packet.length();
+        return length <= Math.min(Frame.MAX_CAPACITY, bufferCapacity - Frame.FRAME_HEADER_LENGTH)
+                && packet.headerInfo() == null;
+    }
+
+    /**
+     * 帧头写出之前，缓冲剩余空间不足以容纳整帧时留到下一份缓冲，
+     * 使整帧在同一份缓冲中写出
+     */
+    @Override
+    public synchronized boolean handle(IoArgs args) throws IOException {
+        if (packet != null && !isSending() && args.remaining() < getConsumableLength()) {
+            return false;
+        }
+
+        return super.handle(args);
+    }
+
+    @Override
+    protected int consumeBody(IoArgs args) throws IOException {
+        if (packet == null) {
+            // 已终止当前帧，且帧体未能一次读满，则填充假数据
+            return args.fillEmpty(bodyRemaining);
+        }
+
+        return args.readFrom(packet.open(), bodyRemaining);
+    }
+
+    @Override
+    protected Frame buildNextFrame() {
+        return null;
+    }
+}
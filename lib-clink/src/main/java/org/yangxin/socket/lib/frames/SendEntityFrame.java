@@ -5,7 +5,8 @@ import org.yangxin.socket.lib.core.IoArgs;
 import org.yangxin.socket.lib.core.SendPacket;
 
 import java.io.IOException;
-import java.nio.channels.ReadableByteChannel;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
 /**
  * @author yangxin
@@ -13,12 +14,37 @@ import java.nio.channels.ReadableByteChannel;
  */
 public class SendEntityFrame extends AbstractSendPacketFrame {
 
-    private final ReadableByteChannel channel;
-    private final long unConsumeEntityLength;
+    /**
+     * 帧体至少写入的字节数，缓冲剩余空间不足时整帧留到下一份缓冲
+     */
+    private static final int MIN_BODY_LENGTH = 64;
 
-    SendEntityFrame(short identifier,
+    /**
+     * 每份输入输出参数至多附加的文件区间长度，与发送缓冲的容量无关，
+     * 扩展长度的帧按该长度分段传输，一次文件传输即可写出一大段区间
+     */
+    private static final int MAX_REGION_LENGTH = 1024 * 1024;
+
+    /**
+     * 文件的通道，文件数据以文件区间发送；其它Packet为null
+     */
+    private FileChannel fileChannel;
+
+    /**
+     * 非文件的Packet的输入流，直接读取，不再包装为通道
+     */
+    private InputStream stream;
+    private long unConsumeEntityLength;
+
+    /**
+     * 帧头写出之前可使用的扩展长度上限，0：不使用扩展长度
+     */
+    private int jumboLength;
+
+    SendEntityFrame(int identifier,
                     long entityLength,
-                    ReadableByteChannel channel,
+                    FileChannel fileChannel,
+                    InputStream stream,
                     SendPacket<?> packet) {
         super((int) Math.min(entityLength, Frame.MAX_CAPACITY),
                 Frame.TYPE_PACKET_ENTITY,
@@ -32,17 +58,113 @@ public class SendEntityFrame extends AbstractSendPacketFrame {
 
         // 设置未消费的实体长度
         unConsumeEntityLength = entityLength - bodyRemaining;
-        this.channel = channel;
+        this.fileChannel = fileChannel;
+        this.stream = stream;
+    }
+
+    /**
+     * 复用当前帧对象发送实体的一段数据
+     *
+     * @param identifier   标识
+     * @param entityLength 未发送的实体长度
+     * @param fileChannel  文件的通道
+     * @param stream       非文件的输入流
+     * @param packet       发送包
+     */
+    synchronized void reset(int identifier,
+                            long entityLength,
+                            FileChannel fileChannel,
+                            InputStream stream,
+                            SendPacket<?> packet) {
+        reset((int) Math.min(entityLength, Frame.MAX_CAPACITY),
+                Frame.TYPE_PACKET_ENTITY,
+                Frame.FLAG_NONE,
+                identifier,
+                packet);
+        unConsumeEntityLength = entityLength - bodyRemaining;
+        this.fileChannel = fileChannel;
+        this.stream = stream;
+    }
+
+    @Override
+    synchronized void clear() {
+        super.clear();
+        fileChannel = null;
+        stream = null;
+    }
+
+    /**
+     * 设置帧头写出之前可使用的扩展长度上限，
+     * 由发送方在连接上没有其它数据等待时设置，只对文件的实体有效
+     *
+     * @param jumboLength 帧体长度上限，0：不使用扩展长度
+     */
+    public synchronized void setJumboLength(int jumboLength) {
+        this.jumboLength = jumboLength;
+    }
+
+    /**
+     * 是否为已写出部分数据、且帧体尚未写完的扩展长度的帧
+     *
+     * @return True：是
+     */
+    public synchronized boolean isJumboSending() {
+        return getHeaderLength() == Frame.JUMBO_FRAME_HEADER_LENGTH && isSending() && bodyRemaining > 0;
+    }
+
+    /**
+     * 帧头写出之前，非文件的实体按本次能写出的长度截短帧体，剩余部分由后续帧发送，
+     * 使整帧在同一份缓冲中写出；取消总是发生在帧的边界上，缓冲中不再需要为未写完的帧体填充假数据；
+     * 文件的实体以文件区间附加在帧头之后，不占用缓冲的空间，整帧同样在一份输入输出参数中写出，无需截短；
+     * 但已附加到输入输出参数的文件区间若在写出前因取消而关闭了文件，其剩余部分仍由{@link IoArgs}以空数据补齐
+     */
+    @Override
+    public synchronized boolean handle(IoArgs args) throws IOException {
+        if (packet != null && !isSending()) {
+            long entityLength = bodyRemaining + unConsumeEntityLength;
+            if (fileChannel != null && jumboLength > 0 && entityLength > Frame.MAX_CAPACITY
+                    && args.remaining() >= Frame.JUMBO_FRAME_HEADER_LENGTH) {
+                // 以一个扩展长度的帧发送文件的一大段区间，帧体跨越多份输入输出参数，每份至多附加MAX_REGION_LENGTH的文件区间
+                int length = (int) Math.min(entityLength, jumboLength);
+                reset(length, Frame.TYPE_PACKET_ENTITY, Frame.FLAG_JUMBO, getBodyIdentifier(), packet);
+                unConsumeEntityLength = entityLength - length;
+                return super.handle(args);
+            }
+
+            int available = args.remaining() - Frame.FRAME_HEADER_LENGTH;
+            if (fileChannel != null) {
+                // 文件区间不占用缓冲的空间，放得下帧头即可
+                if (available < 0 && !args.isEmpty()) {
+                    return false;
+                }
+            } else if (bodyRemaining > available) {
+                if (available < MIN_BODY_LENGTH && !args.isEmpty()) {
+                    // 空间太小，且缓冲中已有其它帧，留到下一份缓冲；空的缓冲则尽量写入，避免一直无数据可写
+                    return false;
+                }
+
+                unConsumeEntityLength += bodyRemaining - available;
+                shrinkBody(available);
+            }
+        }
+
+        return super.handle(args);
     }
 
     @Override
     protected int consumeBody(IoArgs args) throws IOException {
         if (packet == null) {
-            // 已终止当前帧，则填充假数据
+            // 已终止当前帧，且帧体未能一次读满（非文件的流），则填充假数据
             return args.fillEmpty(bodyRemaining);
         }
 
-        return args.readFrom(channel);
+        if (fileChannel != null) {
+            // 文件数据不经过缓冲，写出时直接从文件传输到套接字；
+            // 普通的帧整帧附加，扩展长度的帧分段附加
+            return args.attachFileRegion(fileChannel, Math.min(bodyRemaining, MAX_REGION_LENGTH));
+        }
+
+        return args.readFrom(stream, bodyRemaining);
     }
 
     @Override
@@ -51,7 +173,8 @@ public class SendEntityFrame extends AbstractSendPacketFrame {
             return null;
         }
 
-        return new SendEntityFrame(getBodyIdentifier(),
-                unConsumeEntityLength, channel, packet);
+        // 当前帧已处理完，复用为下一帧
+        reset(getBodyIdentifier(), unConsumeEntityLength, fileChannel, stream, packet);
+        return this;
     }
 }
@@ -0,0 +1,101 @@
+package org.yangxin.socket.lib.frames;
+
+import org.yangxin.socket.lib.core.Frame;
+import org.yangxin.socket.lib.core.SendPacket;
+
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+
+/**
+ * 单个连接的发送帧缓存池，
+ * 发送完或被移除的帧回收到池中，下一次需要同类型的帧时重新初始化后复用，稳定发送时不再创建帧对象；
+ * 非线程安全，由调用方加锁
+ *
+ * @author yangxin
+ * 2026/10/18 下午10:50
+ */
+public class SendFramePool {
+
+    /**
+     * 每种类型最多缓存的帧数量
+     */
+    private static final int MAX_POOLED_FRAMES = 16;
+
+    private final ArrayDeque<SendHeaderFrame> headerFrames = new ArrayDeque<>(MAX_POOLED_FRAMES);
+    private final ArrayDeque<SendEntityFrame> entityFrames = new ArrayDeque<>(MAX_POOLED_FRAMES);
+    private final ArrayDeque<SendCompactFrame> compactFrames = new ArrayDeque<>(MAX_POOLED_FRAMES);
+    private final ArrayDeque<CancelSendFrame> cancelFrames = new ArrayDeque<>(MAX_POOLED_FRAMES);
+
+    public SendHeaderFrame takeHeaderFrame(int identifier, SendPacket<?> packet) {
+        SendHeaderFrame frame = headerFrames.poll();
+        if (frame == null) {
+            return new SendHeaderFrame(identifier, packet, this);
+        }
+
+        frame.reset(identifier, packet);
+        return frame;
+    }
+
+    public SendCompactFrame takeCompactFrame(int identifier, SendPacket<?> packet) {
+        SendCompactFrame frame = compactFrames.poll();
+        if (frame == null) {
+            return new SendCompactFrame(identifier, packet);
+        }
+
+        frame.reset(identifier, packet);
+        return frame;
+    }
+
+    public CancelSendFrame takeCancelFrame(int identifier) {
+        CancelSendFrame frame = cancelFrames.poll();
+        if (frame == null) {
+            return new CancelSendFrame(identifier);
+        }
+
+        frame.reset(identifier);
+        return frame;
+    }
+
+    SendEntityFrame takeEntityFrame(int identifier,
+                                    long entityLength,
+                                    FileChannel fileChannel,
+                                    InputStream stream,
+                                    SendPacket<?> packet) {
+        SendEntityFrame frame = entityFrames.poll();
+        if (frame == null) {
+            return new SendEntityFrame(identifier, entityLength, fileChannel, stream, packet);
+        }
+
+        frame.reset(identifier, entityLength, fileChannel, stream, packet);
+        return frame;
+    }
+
+    /**
+     * 回收帧，调用方须保证该帧已不在当前帧或帧队列中，也不会再被处理
+     *
+     * @param frame 已处理完或被移除的帧
+     */
+    public void recycle(Frame frame) {
+        if (frame instanceof AbstractSendPacketFrame) {
+            // 释放对发送包的引用
+            ((AbstractSendPacketFrame) frame).clear();
+        }
+
+        if (frame instanceof SendHeaderFrame) {
+            offer(headerFrames, (SendHeaderFrame) frame);
+        } else if (frame instanceof SendEntityFrame) {
+            offer(entityFrames, (SendEntityFrame) frame);
+        } else if (frame instanceof SendCompactFrame) {
+            offer(compactFrames, (SendCompactFrame) frame);
+        } else if (frame instanceof CancelSendFrame) {
+            offer(cancelFrames, (CancelSendFrame) frame);
+        }
+    }
+
+    private static <T> void offer(ArrayDeque<T> frames, T frame) {
+        if (frames.size() < MAX_POOLED_FRAMES) {
+            frames.offer(frame);
+        }
+    }
+}
@@ -4,9 +4,9 @@ import org.yangxin.socket.lib.core.Frame;
 import org.yangxin.socket.lib.core.IoArgs;
 import org.yangxin.socket.lib.core.SendPacket;
 
+import java.io.FileInputStream;
 import java.io.InputStream;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.FileChannel;
 
 /**
  * Packet头帧
@@ -17,22 +17,49 @@ import java.nio.channels.ReadableByteChannel;
 public class SendHeaderFrame extends AbstractSendPacketFrame {
 
     static final int PACKET_HEADER_FRAME_MIN_LENGTH = 6;
-    private final byte[] body;
 
-    public SendHeaderFrame(short identifier, SendPacket<?> packet) {
+    private final byte[] body = new byte[PACKET_HEADER_FRAME_MIN_LENGTH];
+
+    /**
+     * 构建后续实体帧所用的缓存池，为null时直接创建
+     */
+    private final SendFramePool pool;
+
+    public SendHeaderFrame(int identifier, SendPacket<?> packet) {
+        this(identifier, packet, null);
+    }
+
+    SendHeaderFrame(int identifier, SendPacket<?> packet, SendFramePool pool) {
         super(PACKET_HEADER_FRAME_MIN_LENGTH,
                 Frame.TYPE_PACKET_HEADER,
                 Frame.FLAG_NONE,
                 identifier,
                 packet);
+        this.pool = pool;
+        fillBody(packet);
+    }
+
+    /**
+     * 复用当前帧对象
+     *
+     * @param identifier 标识
+     * @param packet     发送包
+     */
+    synchronized void reset(int identifier, SendPacket<?> packet) {
+        reset(PACKET_HEADER_FRAME_MIN_LENGTH, Frame.TYPE_PACKET_HEADER, Frame.FLAG_NONE, identifier, packet);
+        fillBody(packet);
+    }
 
+    /**
+     * 填充帧体
+     *
+     * @param packet 发送包
+     */
+    private void fillBody(SendPacket<?> packet) {
         final long packetLength = packet.length();
         final byte packetType = packet.type();
         final byte[] packetHeaderInfo = packet.headerInfo();
 
-        // 头部对应的数据信息长度
-        body = new byte[bodyRemaining];
-
         // 头5字节存储长度信息低5字节（40位）数据
         // 00000000 00000000 00000000 00000000 00000000 00000000 00000000 00000000
         body[0] = (byte) (packetLength >> 32);
@@ -58,12 +85,15 @@ public class SendHeaderFrame extends AbstractSendPacketFrame {
 
     @Override
     public Frame buildNextFrame() {
-        // 从包处，打开一个输入流
+        // 从包处，打开一个输入流，文件流直接使用其文件通道，其它流直接读取
         InputStream stream = packet.open();
-        // 通过输入流，打开一个可读字节通道
-        ReadableByteChannel channel = Channels.newChannel(stream);
+        FileChannel fileChannel = stream instanceof FileInputStream
+                ? ((FileInputStream) stream).getChannel()
+                : null;
 
-        // 实例化一个发送实体帧
-        return new SendEntityFrame(getBodyIdentifier(), packet.length(), channel, packet);
+        // 得到一个发送实体帧
+        return pool == null
+                ? new SendEntityFrame(getBodyIdentifier(), packet.length(), fileChannel, stream, packet)
+                : pool.takeEntityFrame(getBodyIdentifier(), packet.length(), fileChannel, stream, packet);
     }
 }
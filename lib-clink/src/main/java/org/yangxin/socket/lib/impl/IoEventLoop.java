@@ -0,0 +1,288 @@
+package org.yangxin.socket.lib.impl;
+
+import org.yangxin.socket.lib.core.ds.DirectBufferPool;
+import org.yangxin.socket.lib.utils.CloseUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 事件循环，
+ * 拥有独立的选择器与线程，同时监听读写事件，
+ * 注册到当前事件循环的通道，其所有输入输出回调均在当前事件循环线程上执行，
+ * 因此同一通道的回调之间天然串行，不会并发执行
+ *
+ * @author yangxin
+ * 2026/10/18 上午10:12
+ */
+@SuppressWarnings("AlibabaAvoidManuallyCreateThread")
+class IoEventLoop implements Runnable, Closeable {
+
+    /**
+     * 当前事件循环是否被关闭
+     */
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+    /**
+     * 同时监听读写事件的选择器
+     */
+    private final Selector selector;
+
+    /**
+     * 其他线程投递的注册、取消注册任务
+     */
+    private final SelectorTaskQueue taskQueue;
+
+    /**
+     * 运行当前事件循环的线程
+     */
+    private final Thread thread;
+
+    /**
+     * 是否保持读事件的持续监听，为true时读事件就绪后不取消监听，回调中无需重新注册
+     */
+    private final boolean isPersistentInput;
+
+    IoEventLoop(String name, boolean isPersistentInput) throws IOException {
+        this.isPersistentInput = isPersistentInput;
+        selector = Selector.open();
+        taskQueue = new SelectorTaskQueue(selector);
+
+        thread = new Thread(this, name);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        // 所有输入输出回调均在当前线程上执行，使用缓冲池的本地缓存
+        DirectBufferPool.markIoThread();
+
+        while (!isClosed.get()) {
+            try {
+                // 执行其他线程投递的注册任务
+                taskQueue.runTasks();
+
+                if (selector.select() == 0) {
+                    continue;
+                }
+
+                Set<SelectionKey> set = selector.selectedKeys();
+                for (SelectionKey key : set) {
+                    if (key.isValid()) {
+                        handleSelection(key);
+                    }
+                }
+
+                // 清除所有已被处理的选择键
+                set.clear();
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (ClosedSelectorException ignored) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 注册通道的某个事件，
+     * 非事件循环线程的注册将投递到任务队列，由事件循环线程在下一轮循环时执行
+     *
+     * @param channel  通道
+     * @param ops      被注册的操作
+     * @param callback 事件就绪时的回调
+     * @return 是否注册成功，异步注册时仅代表通道仍处于打开状态
+     */
+    boolean register(SocketChannel channel, int ops, Runnable callback) {
+        if (inEventLoop()) {
+            return registerSelection(channel, ops, callback);
+        }
+
+        taskQueue.post(() -> registerSelection(channel, ops, callback));
+        return channel.isOpen();
+    }
+
+    /**
+     * 取消注册通道的某个事件
+     *
+     * @param channel 通道
+     * @param ops     被取消的操作
+     */
+    void unRegister(SocketChannel channel, int ops) {
+        if (inEventLoop()) {
+            unRegisterSelection(channel, ops);
+        } else {
+            taskQueue.post(() -> unRegisterSelection(channel, ops));
+        }
+    }
+
+    /**
+     * 取消对通道某个事件的监听，保留其回调，持续监听的读事件需要暂停时使用
+     *
+     * @param channel 通道
+     * @param ops     被取消的操作
+     */
+    void removeInterest(SocketChannel channel, int ops) {
+        if (inEventLoop()) {
+            removeInterestSelection(channel, ops);
+        } else {
+            taskQueue.post(() -> removeInterestSelection(channel, ops));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (isClosed.compareAndSet(false, true)) {
+            selector.wakeup();
+            CloseUtils.close(selector);
+        }
+    }
+
+    /**
+     * 当前线程是否为事件循环线程
+     *
+     * @return 是否为事件循环线程
+     */
+    private boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * 注册选择，只能在事件循环线程上执行
+     *
+     * @param channel  通道
+     * @param ops      被注册的操作
+     * @param callback 事件就绪时的回调
+     * @return 是否注册成功
+     */
+    private boolean registerSelection(SocketChannel channel, int ops, Runnable callback) {
+        try {
+            SelectionKey key = channel.keyFor(selector);
+            if (key != null) {
+                // 已注册过，更新回调并增加新的兴趣事件
+                ((ChannelCallbacks) key.attachment()).set(ops, callback);
+                int interestOps = key.interestOps();
+                if ((interestOps & ops) != ops) {
+                    // 持续监听的读事件重复注册时，兴趣事件不变，无需更新
+                    key.interestOps(interestOps | ops);
+                }
+            } else {
+                ChannelCallbacks callbacks = new ChannelCallbacks();
+                callbacks.set(ops, callback);
+                channel.register(selector, ops, callbacks);
+            }
+            return true;
+        } catch (ClosedChannelException | CancelledKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 取消注册选择，只能在事件循环线程上执行，
+     * 通道不再注册任何事件时取消其选择键
+     *
+     * @param channel 通道
+     * @param ops     被取消的操作
+     */
+    private void unRegisterSelection(SocketChannel channel, int ops) {
+        SelectionKey key = channel.keyFor(selector);
+        if (key == null) {
+            return;
+        }
+
+        ChannelCallbacks callbacks = (ChannelCallbacks) key.attachment();
+        callbacks.set(ops, null);
+        if (callbacks.isEmpty()) {
+            key.cancel();
+            return;
+        }
+
+        try {
+            key.interestOps(key.interestOps() & ~ops);
+        } catch (CancelledKeyException ignored) {
+        }
+    }
+
+    private void removeInterestSelection(SocketChannel channel, int ops) {
+        SelectionKey key = channel.keyFor(selector);
+        if (key == null) {
+            return;
+        }
+
+        try {
+            key.interestOps(key.interestOps() & ~ops);
+        } catch (CancelledKeyException ignored) {
+        }
+    }
+
+    /**
+     * 处理选择，直接在事件循环线程上执行回调
+     *
+     * @param key 被处理的选择键
+     */
+    private void handleSelection(SelectionKey key) {
+        int readyOps;
+        try {
+            readyOps = key.readyOps();
+            // 取消继续对已就绪事件的监听，由回调按需重新注册，持续监听的读事件除外
+            int cancelOps = isPersistentInput ? readyOps & ~SelectionKey.OP_READ : readyOps;
+            if (cancelOps != 0) {
+                key.interestOps(key.interestOps() & ~cancelOps);
+            }
+        } catch (CancelledKeyException ignored) {
+            // 通道已在其他线程被关闭
+            return;
+        }
+
+        ChannelCallbacks callbacks = (ChannelCallbacks) key.attachment();
+        if ((readyOps & SelectionKey.OP_READ) != 0) {
+            runCallback(callbacks.inputCallback);
+        }
+        if ((readyOps & SelectionKey.OP_WRITE) != 0 && key.isValid()) {
+            runCallback(callbacks.outputCallback);
+        }
+    }
+
+    private static void runCallback(Runnable callback) {
+        if (callback == null) {
+            return;
+        }
+
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            // 单个通道的异常不应终止整个事件循环
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 通道在当前事件循环上的输入输出回调
+     */
+    private static class ChannelCallbacks {
+
+        private volatile Runnable inputCallback;
+        private volatile Runnable outputCallback;
+
+        void set(int ops, Runnable callback) {
+            if ((ops & SelectionKey.OP_READ) != 0) {
+                inputCallback = callback;
+            }
+            if ((ops & SelectionKey.OP_WRITE) != 0) {
+                outputCallback = callback;
+            }
+        }
+
+        boolean isEmpty() {
+            return inputCallback == null && outputCallback == null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.yangxin.socket.lib.impl;
+
+import org.yangxin.socket.lib.core.IoProvider;
+import org.yangxin.socket.lib.utils.CloseUtils;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 多事件循环的输入输出提供者，
+ * 创建N个事件循环，每个事件循环拥有独立的选择器，同时处理读写事件，
+ * 通道在注册时按其标识被分配到某个事件循环，此后该通道的所有输入输出均在该事件循环上执行；
+ * 注册与取消注册均投递到事件循环的任务队列中执行，不会阻塞调用线程；
+ * 可选择持续监听读事件，由于同一通道的回调总在同一事件循环上串行执行，读取完成后无需重新注册读事件
+ *
+ * @author yangxin
+ * 2026/10/18 上午10:12
+ */
+public class IoEventLoopProvider implements IoProvider {
+
+    /**
+     * 当前输入输出提供者是否被关闭
+     */
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+    /**
+     * 所有的事件循环
+     */
+    private final IoEventLoop[] eventLoops;
+
+    /**
+     * 实例化一个输入输出提供者，事件循环数量默认为CPU核数
+     *
+     * @throws IOException 输入输出异常
+     */
+    public IoEventLoopProvider() throws IOException {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 实例化一个输入输出提供者
+     *
+     * @param loopCount 事件循环数量
+     * @throws IOException 输入输出异常
+     */
+    public IoEventLoopProvider(int loopCount) throws IOException {
+        this(loopCount, false);
+    }
+
+    /**
+     * 实例化一个输入输出提供者
+     *
+     * @param loopCount         事件循环数量
+     * @param isPersistentInput 是否持续监听读事件
+     * @throws IOException 输入输出异常
+     */
+    public IoEventLoopProvider(int loopCount, boolean isPersistentInput) throws IOException {
+        if (loopCount < 1) {
+            throw new IllegalArgumentException("Event loop count must be positive: " + loopCount);
+        }
+
+        eventLoops = new IoEventLoop[loopCount];
+        try {
+            for (int i = 0; i < loopCount; i++) {
+                eventLoops[i] = new IoEventLoop("Clink IoEventLoopProvider EventLoop Thread-" + (i + 1),
+                        isPersistentInput);
+            }
+        } catch (IOException e) {
+            CloseUtils.close(eventLoops);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean registerInput(SocketChannel channel, HandleInputCallback callback) {
+        return !isClosed.get() && chooseLoop(channel).register(channel, SelectionKey.OP_READ, callback);
+    }
+
+    @Override
+    public boolean registerOutput(SocketChannel channel, HandleOutputCallback callback) {
+        return !isClosed.get() && chooseLoop(channel).register(channel, SelectionKey.OP_WRITE, callback);
+    }
+
+    @Override
+    public void unRegisterInput(SocketChannel channel) {
+        chooseLoop(channel).unRegister(channel, SelectionKey.OP_READ);
+    }
+
+    @Override
+    public void unRegisterOutput(SocketChannel channel) {
+        chooseLoop(channel).unRegister(channel, SelectionKey.OP_WRITE);
+    }
+
+    @Override
+    public void pauseInput(SocketChannel channel) {
+        chooseLoop(channel).removeInterest(channel, SelectionKey.OP_READ);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (isClosed.compareAndSet(false, true)) {
+            CloseUtils.close(eventLoops);
+        }
+    }
+
+    /**
+     * 为通道选择事件循环，同一通道总是被分配到同一个事件循环
+     *
+     * @param channel 通道
+     * @return 事件循环
+     */
+    private IoEventLoop chooseLoop(SocketChannel channel) {
+        return eventLoops[(System.identityHashCode(channel) & Integer.MAX_VALUE) % eventLoops.length];
+    }
+}
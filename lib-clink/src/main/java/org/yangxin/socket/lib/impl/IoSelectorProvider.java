@@ -1,9 +1,11 @@
 package org.yangxin.socket.lib.impl;
 
 import org.yangxin.socket.lib.core.IoProvider;
+import org.yangxin.socket.lib.core.ds.DirectBufferPool;
 import org.yangxin.socket.lib.utils.CloseUtils;
 
 import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
@@ -75,15 +77,44 @@ public class IoSelectorProvider implements IoProvider {
      */
     private final ExecutorService outputHandlePool;
 
+    /**
+     * 是否通过任务队列进行注册，为true时注册与取消注册由选择器线程统一执行，不再加锁等待
+     */
+    private final boolean isQueueRegistration;
+
+    /**
+     * 读选择器的注册任务队列
+     */
+    private final SelectorTaskQueue readTaskQueue;
+
+    /**
+     * 写选择器的注册任务队列
+     */
+    private final SelectorTaskQueue writeTaskQueue;
+
     /**
      * 实例化一个选择器提供者
      *
      * @throws IOException 输入输出异常
      */
     public IoSelectorProvider() throws IOException {
+        this(false);
+    }
+
+    /**
+     * 实例化一个选择器提供者
+     *
+     * @param isQueueRegistration 是否通过任务队列进行注册
+     * @throws IOException 输入输出异常
+     */
+    public IoSelectorProvider(boolean isQueueRegistration) throws IOException {
+        this.isQueueRegistration = isQueueRegistration;
+
         // 实例化一个读选择器、写选择器
         readSelector = Selector.open();
         writeSelector = Selector.open();
+        readTaskQueue = new SelectorTaskQueue(readSelector);
+        writeTaskQueue = new SelectorTaskQueue(writeSelector);
 
         // 实例化一个读事件处理线程池、写事件处理线程池
         inputHandlePool = Executors.newFixedThreadPool(4,
@@ -107,6 +138,9 @@ public class IoSelectorProvider implements IoProvider {
                 // 如果当前输入输出选择器提供者未关闭
                 while (!isClosed.get()) {
                     try {
+                        // 执行队列中的注册任务
+                        readTaskQueue.runTasks();
+
                         // 如果读选择器没有就绪事件，则等待选择（注意：select方法是阻塞的）
                         if (readSelector.select() == 0) {
                             // 等待选择
@@ -148,6 +182,8 @@ public class IoSelectorProvider implements IoProvider {
             public void run() {
                 while (!isClosed.get()) {
                     try {
+                        writeTaskQueue.runTasks();
+
                         if (writeSelector.select() == 0) {
                             waitSelection(inRegOutput);
                             continue;
@@ -176,12 +212,24 @@ public class IoSelectorProvider implements IoProvider {
 
     @Override
     public boolean registerInput(SocketChannel channel, HandleInputCallback callback) {
+        if (isQueueRegistration) {
+            readTaskQueue.post(() ->
+                    registerSelection(channel, readSelector, SelectionKey.OP_READ, inputCallbackMap, callback));
+            return channel.isOpen();
+        }
+
         return registerSelection(channel, readSelector, SelectionKey.OP_READ, isRegInput, inputCallbackMap, callback)
                 != null;
     }
 
     @Override
     public boolean registerOutput(SocketChannel channel, HandleOutputCallback callback) {
+        if (isQueueRegistration) {
+            writeTaskQueue.post(() ->
+                    registerSelection(channel, writeSelector, SelectionKey.OP_WRITE, outputCallbackMap, callback));
+            return channel.isOpen();
+        }
+
         return registerSelection(channel,
                 writeSelector,
                 SelectionKey.OP_WRITE,
@@ -193,12 +241,25 @@ public class IoSelectorProvider implements IoProvider {
 
     @Override
     public void unRegisterInput(SocketChannel channel) {
-        unRegisterSelection(channel, readSelector, inputCallbackMap);
+        if (isQueueRegistration) {
+            readTaskQueue.post(() -> unRegisterSelection(channel, readSelector, inputCallbackMap));
+        } else {
+            unRegisterSelection(channel, readSelector, inputCallbackMap);
+        }
     }
 
     @Override
     public void unRegisterOutput(SocketChannel channel) {
-        unRegisterSelection(channel, writeSelector, outputCallbackMap);
+        if (isQueueRegistration) {
+            writeTaskQueue.post(() -> unRegisterSelection(channel, writeSelector, outputCallbackMap));
+        } else {
+            unRegisterSelection(channel, writeSelector, outputCallbackMap);
+        }
+    }
+
+    @Override
+    public void pauseInput(SocketChannel channel) {
+        // 读事件为单次监听，就绪后已取消，不再注册即处于暂停状态
     }
 
     @Override
@@ -261,28 +322,7 @@ public class IoSelectorProvider implements IoProvider {
                 // 唤醒当前的selector，让selector不处于select()状态
                 selector.wakeup();
 
-                SelectionKey key = null;
-                if (channel.isRegistered()) {
-                    // 查询通道是否已经被注册过
-                    key = channel.keyFor(selector);
-                    if (key != null) {
-                        // 如果该选择键已被注册到该选择器，则为该键增加新的兴趣事件
-                        key.interestOps(key.readyOps() | registerOps);
-                    }
-                }
-
-                // 如果该通道未被注册过
-                if (key == null) {
-                    // 注册selector得到Key
-                    key = channel.register(selector, registerOps);
-                    // 注册回调
-                    map.put(key, runnable);
-                }
-
-                // 返回选择键
-                return key;
-            } catch (ClosedChannelException e) {
-                return null;
+                return registerSelection(channel, selector, registerOps, map, runnable);
             } finally {
                 // 解除锁定状态
                 locker.set(false);
@@ -295,6 +335,47 @@ public class IoSelectorProvider implements IoProvider {
         }
     }
 
+    /**
+     * 注册选择，调用时选择器不能处于select()状态
+     *
+     * @param channel     通道
+     * @param selector    选择器
+     * @param registerOps 被注册的操作
+     * @param map         SelectionKey -> Runnable
+     * @param runnable    可运行实例
+     * @return 注册成功之后的选择键，通道已关闭时返回null
+     */
+    private static SelectionKey registerSelection(SocketChannel channel,
+                                                  Selector selector,
+                                                  int registerOps,
+                                                  Map<SelectionKey, Runnable> map,
+                                                  Runnable runnable) {
+        try {
+            SelectionKey key = null;
+            if (channel.isRegistered()) {
+                // 查询通道是否已经被注册过
+                key = channel.keyFor(selector);
+                if (key != null) {
+                    // 如果该选择键已被注册到该选择器，则为该键增加新的兴趣事件
+                    key.interestOps(key.readyOps() | registerOps);
+                }
+            }
+
+            // 如果该通道未被注册过
+            if (key == null) {
+                // 注册selector得到Key
+                key = channel.register(selector, registerOps);
+                // 注册回调
+                map.put(key, runnable);
+            }
+
+            // 返回选择键
+            return key;
+        } catch (ClosedChannelException | CancelledKeyException e) {
+            return null;
+        }
+    }
+
     private static void unRegisterSelection(SocketChannel channel,
                                             Selector selector,
                                             Map<SelectionKey, Runnable> map) {
@@ -356,7 +437,11 @@ public class IoSelectorProvider implements IoProvider {
 
         @Override
         public Thread newThread(Runnable r) {
-            Thread thread = new Thread(group, r, namePrefix + threadNumber.getAndIncrement(), 0);
+            // 输入输出回调在线程池的线程上执行，使用缓冲池的本地缓存
+            Thread thread = new Thread(group, () -> {
+                DirectBufferPool.markIoThread();
+                r.run();
+            }, namePrefix + threadNumber.getAndIncrement(), 0);
             if (thread.isDaemon()) {
                 thread.setDaemon(false);
             }
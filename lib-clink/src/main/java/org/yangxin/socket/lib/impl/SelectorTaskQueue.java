@@ -0,0 +1,66 @@
+package org.yangxin.socket.lib.impl;
+
+import java.nio.channels.Selector;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 选择器任务队列，
+ * 其他线程投递的注册、兴趣事件变更等任务进入无锁的多生产者单消费者队列，
+ * 由选择器线程在每轮循环开始时统一执行，每一批任务至多唤醒一次选择器
+ *
+ * @author yangxin
+ * 2026/10/18 上午11:05
+ */
+class SelectorTaskQueue {
+
+    /**
+     * 待选择器线程执行的任务
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 当前批次是否已唤醒过选择器
+     */
+    private final AtomicBoolean wakenUp = new AtomicBoolean(false);
+
+    /**
+     * 任务所属的选择器
+     */
+    private final Selector selector;
+
+    SelectorTaskQueue(Selector selector) {
+        this.selector = selector;
+    }
+
+    /**
+     * 投递一个任务，仅当前批次的第一个任务会唤醒选择器
+     *
+     * @param task 任务
+     */
+    void post(Runnable task) {
+        tasks.offer(task);
+
+        if (wakenUp.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * 执行所有待执行的任务，只能由选择器线程在select()之前调用
+     */
+    void runTasks() {
+        // 先复位唤醒标记，执行期间新投递的任务会再次唤醒选择器，下一轮循环时被执行
+        wakenUp.set(false);
+
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -39,6 +39,12 @@ public class SocketChannelAdapter implements Sender, Receiver, Cloneable {
      */
     private final OnChannelStatusChangedListener listener;
 
+    /**
+     * 单次读写事件的字节预算，大于0时一次就绪事件内持续读写，直到通道暂时不可读写或消耗完预算；
+     * 小于等于0时一次就绪事件只完成一份输入输出参数的读写
+     */
+    private final int eventBudget;
+
     /**
      * 接收的输入输出事件监听器
      */
@@ -49,10 +55,39 @@ public class SocketChannelAdapter implements Sender, Receiver, Cloneable {
      */
     private IoArgs.IoArgsEventProcessor sendIoEventProcessor;
 
-    public SocketChannelAdapter(SocketChannel channel, IoProvider ioProvider, OnChannelStatusChangedListener listener) throws IOException {
+    /**
+     * 因通道暂时不可写而未写完的输入输出参数，通道可写时优先继续写出
+     */
+    private volatile IoArgs pendingSendArgs;
+
+    /**
+     * 正在循环发送的线程
+     */
+    private volatile Thread sendingThread;
+
+    /**
+     * 循环发送过程中是否又请求了发送
+     */
+    private volatile boolean isSendRequested;
+
+    /**
+     * 正在循环接收的线程
+     */
+    private volatile Thread receivingThread;
+
+    /**
+     * 循环接收过程中是否又请求了接收
+     */
+    private volatile boolean isReceiveRequested;
+
+    public SocketChannelAdapter(SocketChannel channel,
+                                IoProvider ioProvider,
+                                OnChannelStatusChangedListener listener,
+                                int eventBudget) throws IOException {
         this.channel = channel;
         this.ioProvider = ioProvider;
         this.listener = listener;
+        this.eventBudget = eventBudget;
 
         // 配置当前通道非阻塞
         channel.configureBlocking(false);
@@ -70,6 +105,15 @@ public class SocketChannelAdapter implements Sender, Receiver, Cloneable {
             throw new IOException("Current channel is closed!");
         }
 
+        // 循环接收过程中请求的接收（包括其他线程恢复接收的请求），由接收的循环继续处理；
+        // 先置请求标记再复查，与接收循环退出时的复查配合，请求不会丢失
+        if (receivingThread != null) {
+            isReceiveRequested = true;
+            if (receivingThread != null) {
+                return true;
+            }
+        }
+
         return ioProvider.registerInput(channel, inputCallback);
     }
 
@@ -85,10 +129,32 @@ public class SocketChannelAdapter implements Sender, Receiver, Cloneable {
             throw new IOException("Current channel is closed!");
         }
 
+        // 循环发送过程中请求的发送，由发送的循环继续处理
+        if (sendingThread == Thread.currentThread()) {
+            isSendRequested = true;
+            return true;
+        }
+
         // 向输入输出提供者注册输出事件
         return ioProvider.registerOutput(channel, outputCallback);
     }
 
+    @Override
+    public boolean postSendDirect() throws IOException {
+        if (isClosed.get()) {
+            throw new IOException("Current channel is closed!");
+        }
+
+        // 发送完成回调中再次请求的发送，由外层循环继续处理，避免递归
+        if (sendingThread == Thread.currentThread()) {
+            isSendRequested = true;
+            return true;
+        }
+
+        sendLoop(eventBudget > 0 ? eventBudget : Integer.MAX_VALUE);
+        return true;
+    }
+
     @Override
     public void close() throws IOException {
         if (isClosed.compareAndSet(false, true)) {
@@ -104,6 +170,128 @@ public class SocketChannelAdapter implements Sender, Receiver, Cloneable {
         }
     }
 
+    /**
+     * 在当前线程上循环发送，直到没有数据可发送、通道暂时不可写或消耗完字节预算，
+     * 后两种情况注册写事件，由输出回调继续发送
+     *
+     * @param budget 字节预算
+     */
+    private void sendLoop(int budget) {
+        IoArgs.IoArgsEventProcessor processor = sendIoEventProcessor;
+        boolean needRegister = false;
+
+        sendingThread = Thread.currentThread();
+        try {
+            int bytes = 0;
+            do {
+                isSendRequested = false;
+
+                // 优先继续写出未写完的数据
+                IoArgs args = pendingSendArgs;
+                if (args != null) {
+                    pendingSendArgs = null;
+                } else {
+                    args = processor.provideIoArgs();
+                }
+
+                if (args == null) {
+                    processor.onConsumeFailed(null, new IOException("ProvideIoArgs is null."));
+                    break;
+                }
+
+                bytes += args.tryWriteTo(channel);
+                if (args.remained() || args.hasFileRegion()) {
+                    // 内核发送缓冲区已满，剩余数据等待通道可写时继续写出
+                    pendingSendArgs = args;
+                    needRegister = true;
+                    break;
+                }
+
+                processor.onConsumeCompleted(args);
+
+                if (isSendRequested && bytes >= budget) {
+                    // 预算已消耗完，让出线程，剩余数据由下一次写事件继续发送
+                    needRegister = true;
+                    break;
+                }
+            } while (isSendRequested && !isClosed.get());
+        } catch (IOException e) {
+            CloseUtils.close(this);
+            return;
+        } finally {
+            sendingThread = null;
+        }
+
+        // 须在解除循环发送状态之后注册，写事件回调可能立即在其他线程上执行
+        if (needRegister && !isClosed.get()) {
+            ioProvider.registerOutput(channel, outputCallback);
+        }
+    }
+
+    /**
+     * 在当前线程上循环接收，每次读取通道中已有的数据后立即交由处理器消费，
+     * 直到通道暂时没有数据或消耗完字节预算
+     *
+     * @param budget 字节预算
+     */
+    private void receiveLoop(int budget) {
+        IoArgs.IoArgsEventProcessor processor = receiveIoEventProcessor;
+        boolean needRegister = false;
+        boolean needPause = false;
+
+        receivingThread = Thread.currentThread();
+        try {
+            int bytes = 0;
+            do {
+                isReceiveRequested = false;
+
+                IoArgs args = processor.provideIoArgs();
+                if (args == null) {
+                    processor.onConsumeFailed(null, new IOException("ProvideIoArgs is null."));
+                    break;
+                }
+
+                args.startWriting();
+                int count = args.tryReadFrom(channel);
+                if (count == 0) {
+                    // 通道暂时没有数据，等待下一次读事件
+                    args.release();
+                    needRegister = true;
+                    break;
+                }
+
+                bytes += count;
+                args.finishWriting();
+                processor.onConsumeCompleted(args);
+
+                // 处理器未请求继续接收（如下游队列已满），暂停读事件的监听
+                needPause = !isReceiveRequested;
+
+                if (isReceiveRequested && bytes >= budget) {
+                    // 预算已消耗完，让出线程
+                    needRegister = true;
+                    break;
+                }
+            } while (isReceiveRequested && !isClosed.get());
+        } catch (IOException e) {
+            CloseUtils.close(this);
+            return;
+        } finally {
+            receivingThread = null;
+        }
+
+        // 循环退出期间其他线程请求了接收
+        if (!needRegister && isReceiveRequested) {
+            needRegister = true;
+        }
+
+        if (needRegister && !isClosed.get()) {
+            ioProvider.registerInput(channel, inputCallback);
+        } else if (needPause && !isClosed.get()) {
+            ioProvider.pauseInput(channel);
+        }
+    }
+
     /**
      * 处理输入的回调
      */
@@ -115,22 +303,8 @@ public class SocketChannelAdapter implements Sender, Receiver, Cloneable {
                 return;
             }
 
-            IoArgs.IoArgsEventProcessor processor = receiveIoEventProcessor;
-            IoArgs args = processor.provideIoArgs();
-
-            try {
-                // 具体的读取操作
-                if (args == null) {
-                    processor.onConsumeFailed(null, new IOException("ProvideIoArgs is null."));
-                } else if (args.readFrom(channel) > 0) {
-                    // 读取完成回调
-                    processor.onConsumeCompleted(args);
-                } else {
-                    processor.onConsumeFailed(args, new IOException("Cannot read any data!"));
-                }
-            } catch (IOException ignored) {
-                CloseUtils.close(SocketChannelAdapter.this);
-            }
+            // 通道暂时没有数据时不空转等待，不完整的帧由写入者保留到下一次读事件继续解析
+            receiveLoop(Math.max(eventBudget, 0));
         }
     };
 
@@ -146,25 +320,8 @@ public class SocketChannelAdapter implements Sender, Receiver, Cloneable {
                 return;
             }
 
-            // 获得发送输入输出事件处理器
-            IoArgs.IoArgsEventProcessor processor = sendIoEventProcessor;
-            // 从输入输出参数事件处理器中拿到输入输出参数
-            IoArgs args = processor.provideIoArgs();
-
-            try {
-                // 具体的写操作
-                if (args == null) {
-                    processor.onConsumeFailed(null, new IOException("ProvideIoArgs is null."));
-                } else if (args.writeTo(channel) > 0) {
-                    // 消费完成时回调
-                    processor.onConsumeCompleted(args);
-                } else {
-                    // 消费失败时回调
-                    processor.onConsumeFailed(args, new IOException("Cannot write any data!"));
-                }
-            } catch (IOException e) {
-                CloseUtils.close(SocketChannelAdapter.this);
-            }
+            // 通道暂时不可写时不空转等待，未写完的部分保留到下一次写事件继续写出
+            sendLoop(Math.max(eventBudget, 0));
         }
     };
 
@@ -2,15 +2,21 @@ package org.yangxin.socket.lib.impl.async;
 
 import org.yangxin.socket.lib.core.Frame;
 import org.yangxin.socket.lib.core.IoArgs;
+import org.yangxin.socket.lib.core.IoContext;
 import org.yangxin.socket.lib.core.SendPacket;
-import org.yangxin.socket.lib.core.ds.BytePriorityNode;
+import org.yangxin.socket.lib.core.ds.BytePriorityQueue;
+import org.yangxin.socket.lib.core.ds.IdentifierTable;
 import org.yangxin.socket.lib.frames.AbstractSendPacketFrame;
 import org.yangxin.socket.lib.frames.CancelSendFrame;
+import org.yangxin.socket.lib.frames.SendCompactFrame;
 import org.yangxin.socket.lib.frames.SendEntityFrame;
+import org.yangxin.socket.lib.frames.SendFramePool;
 import org.yangxin.socket.lib.frames.SendHeaderFrame;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author yangxin
@@ -19,6 +25,16 @@ import java.io.IOException;
 @SuppressWarnings("AlibabaUndefineMagicConstant")
 public class AsyncPacketReader implements Closeable {
 
+    /**
+     * 控制帧（如取消发送帧）的优先级，总是先于数据帧发送
+     */
+    private static final byte PRIORITY_CONTROL = Byte.MAX_VALUE;
+
+    /**
+     * 权重为1的包每轮可发送的字节数，即一个满载的帧
+     */
+    private static final int QUANTUM = Frame.FRAME_HEADER_LENGTH + Frame.MAX_CAPACITY;
+
     /**
      * 用于此异步包阅读者的包提供者
      */
@@ -27,25 +43,117 @@ public class AsyncPacketReader implements Closeable {
     /**
      * 底层数据结构：输入输出参数
      */
-    private volatile IoArgs args = new IoArgs();
+    private final IoArgs args;
+
+    /**
+     * 帧队列，按优先级分桶，不包含当前帧
+     */
+    private final BytePriorityQueue<Frame> queue = new BytePriorityQueue<>();
+
+    /**
+     * 当前正在发送的帧，发送完之前不会被更高优先级的帧打断
+     */
+    private volatile Frame current;
+
+    /**
+     * 当前帧的优先级
+     */
+    private byte currentPriority;
+
+    /**
+     * 头帧已填充到输入输出参数中、尚未写出的包
+     */
+    private final List<SendPacket<?>> startedPackets = new ArrayList<>();
+
+    /**
+     * 末尾帧已填充到输入输出参数中、尚未写出的包，
+     * 写出后才完成，以文件区间发送的包也避免了提前关闭文件
+     */
+    private final List<SendPacket<?>> filledPackets = new ArrayList<>();
+
+    /**
+     * 待以失败完成的包（被取消或连接已关闭），在锁内收集，释放锁后再完成，
+     * 避免完成回调中的后续操作在持有当前锁时执行
+     */
+    private final List<SendPacket<?>> failedPackets = new ArrayList<>();
+
+    /**
+     * 正在完成的包，只由发送线程使用
+     */
+    private final List<SendPacket<?>> completingPackets = new ArrayList<>();
+
+    /**
+     * 1,2,3...255，扩展标识模式下为1,2,3...65535
+     */
+    private int lastIdentifier = 0;
+
+    /**
+     * 标识的最大值，到达后从1重新开始
+     */
+    private final int maxIdentifier;
+
+    /**
+     * 以标识为下标的在途包，标识同时记录在包上，用于取消时定位其帧
+     */
+    private final IdentifierTable<SendPacket<?>> inFlightPackets = new IdentifierTable<>();
+
+    /**
+     * 同时在途的包的数量上限
+     */
+    private final int maxInFlightPackets;
+
+    /**
+     * 在途（已拿出但未发送完）的包的数量
+     */
+    private int inFlightCount;
+
+    /**
+     * 当前帧写完后再取消的包，见{@link #cancelPacket(SendPacket)}
+     */
+    private SendPacket<?> cancelAfterCurrent;
+
+    /**
+     * 当前轮次正在发送的包
+     */
+    private SendPacket<?> turnPacket;
+
+    /**
+     * 当前轮次剩余可发送的字节数
+     */
+    private int deficit;
 
     /**
-     * 帧队列
+     * 是否将小包以单个紧凑帧发送
      */
-    private volatile BytePriorityNode<Frame> node;
+    private final boolean isCompactFrame;
 
     /**
-     * 当前帧链表的节点长度
+     * 发送帧缓存池，处理完的帧回收复用
      */
-    private volatile int nodeSize = 0;
+    private final SendFramePool framePool = new SendFramePool();
 
     /**
-     * 1,2,3...255
+     * 扩展长度的实体帧的帧体长度上限，0：不使用扩展长度的帧
      */
-    private short lastIdentifier = 0;
+    private final int jumboFrameSize;
 
     AsyncPacketReader(PacketProvider provider) {
         this.provider = provider;
+
+        // 发送缓冲容量固定，多个帧可依次写入同一份缓冲
+        IoContext context = IoContext.get();
+        this.args = context == null
+                ? new IoArgs()
+                : new IoArgs(context.getSendBufferSize(), context.getSendBufferSize());
+        this.maxIdentifier = context != null && context.isExtendedIdentifier()
+                ? Frame.MAX_EXTENDED_IDENTIFIER
+                : Frame.MAX_IDENTIFIER;
+        // 在途的包不能多于可用的标识
+        this.maxInFlightPackets = context == null
+                ? 1
+                : Math.min(context.getMaxInFlightPackets(), maxIdentifier);
+        this.isCompactFrame = context != null && context.isCompactFrame();
+        this.jumboFrameSize = context == null ? 0 : context.getJumboFrameSize();
     }
 
     /**
@@ -55,32 +163,36 @@ public class AsyncPacketReader implements Closeable {
      * @return 如果当前Reader中有可以用于网络发送的数据，则返回True
      */
     boolean requestTakePacket() {
-        // 锁住当前实例
-        synchronized (this) {
-            // 如果当前帧队列长度大于1，则直接返回真
-            if (nodeSize >= 1) {
-                return true;
+        // 在途的包未达到上限时继续从队列中拿出新的包，新包的帧追加在同优先级的队尾，与在途包的帧交替发送
+        while (true) {
+            synchronized (this) {
+                if (inFlightCount >= maxInFlightPackets) {
+                    break;
+                }
+                // 预占一个在途名额
+                inFlightCount++;
             }
-        }
 
-        // 从包提供者处拿到一个发送包
-        SendPacket<?> packet = provider.takePacket();
-        if (packet != null) {
-            // 生成标识符
-            short identifier = generateIdentifier();
-            // 实例化一个发送头帧
-            SendHeaderFrame frame = new SendHeaderFrame(identifier, packet);
-            // 将发送头帧追加到帧链表中
-            appendNewFrame(frame);
-        }
+            // 从包提供者处拿到一个发送包
+            SendPacket<?> packet = provider.takePacket();
+            if (packet == null) {
+                synchronized (this) {
+                    inFlightCount--;
+                }
+                break;
+            }
 
-        synchronized (this) {
-            return nodeSize != 0;
+            // 登记为在途包，并将首帧追加到帧队列中；取出后、登记前已被取消的，不再发送
+            registerPacket(packet);
         }
+
+        completeFailedPackets();
+        return hasFrame();
     }
 
     /**
-     * 填充数据到输入输出参数中
+     * 填充数据到输入输出参数中，
+     * 依次写入队列中的帧，直到输入输出参数已满或没有可发送的帧，使多个帧通过一次写操作发出
      *
      * @return 如果当前有可用于发送的帧，则填充数据并返回，如果填充失败可返回null
      */
@@ -92,33 +204,130 @@ public class AsyncPacketReader implements Closeable {
         }
 
         try {
-            // 如果当前帧已被处理完
-            if (currentFrame.handle(args)) {
-                // 消费完本帧
-                // 尝试基于本帧构建后续帧
-                Frame nextFrame = currentFrame.nextFrame();
-                if (nextFrame != null) {
-                    // 如果下一帧存在，则追加新帧
-                    appendNewFrame(nextFrame);
-                } else if (currentFrame instanceof SendEntityFrame) {
-                    // 当前帧被处理完，且当前帧是发送实体帧，则当前帧是末尾实体帧
-                    // 通知完成
-                    provider.completedPacket(((SendEntityFrame) currentFrame).getPacket(), true);
+            args.limit(args.capacity());
+            args.startWriting();
+
+            do {
+                if (jumboFrameSize > 0 && currentFrame instanceof SendEntityFrame) {
+                    // 连接上没有其它数据等待时，文件的实体以扩展长度的帧发送
+                    ((SendEntityFrame) currentFrame).setJumboLength(isIdle() ? jumboFrameSize : 0);
                 }
 
-                // 从链头弹出
-                popCurrentFrame();
-            }
+                // 当前帧未被处理完，说明输入输出参数已满
+                if (!currentFrame.handle(args)) {
+                    break;
+                }
+
+                // 消费完本帧，切换到下一个待发送的帧
+                currentFrame = completeCurrentFrame(currentFrame);
+            } while (currentFrame != null && args.remained());
+
+            args.finishWriting();
 
             // 返回输入输出参数
             return args;
         } catch (IOException e) {
             e.printStackTrace();
+        } finally {
+            // 切换帧时拿取的新包可能已被取消
+            completeFailedPackets();
         }
 
         return null;
     }
 
+    /**
+     * 当前帧已处理完，构建后续帧并切换到下一个待发送的帧，
+     * 与取消互斥，避免已取消的包在取消之后又追加其后续帧
+     *
+     * @param currentFrame 已处理完的帧
+     * @return 下一个待发送的帧，没有时返回null
+     */
+    private synchronized Frame completeCurrentFrame(Frame currentFrame) {
+        if (isFirstFrame(currentFrame)) {
+            // 首帧已填充，写出后记录首个字节的写出时间
+            SendPacket<?> packet = ((AbstractSendPacketFrame) currentFrame).getPacket();
+            if (packet != null) {
+                startedPackets.add(packet);
+            }
+        }
+
+        // 后续帧可能复用本帧的对象，构建之前先记录本帧的信息
+        SendPacket<?> packet = currentFrame instanceof AbstractSendPacketFrame
+                ? ((AbstractSendPacketFrame) currentFrame).getPacket()
+                : null;
+        if (packet != null && packet == cancelAfterCurrent) {
+            // 扩展长度的帧已写完，执行推迟的取消，不再构建后续帧
+            cancelAfterCurrent = null;
+            cancelPacket(packet);
+            packet = null;
+        }
+        int frameLength = currentFrame.getHeaderLength() + currentFrame.getBodyLength();
+
+        // 尝试基于本帧构建后续帧
+        Frame nextFrame = currentFrame.nextFrame();
+        if (nextFrame != null) {
+            if (nextFrame != currentFrame) {
+                framePool.recycle(currentFrame);
+            }
+
+            if (consumeDeficit(packet, frameLength)) {
+                // 本轮的额度未用完，下一帧作为当前帧继续发送
+                replaceCurrentFrame(nextFrame);
+                return nextFrame;
+            }
+
+            // 额度已用完，追加到同优先级的队尾，轮到其它在途包发送
+            appendNewFrame(nextFrame);
+        } else {
+            if (packet != null
+                    && (currentFrame instanceof SendEntityFrame || currentFrame instanceof SendCompactFrame)) {
+                // 当前帧被处理完，且当前帧是发送实体帧或紧凑帧，则当前帧是末尾帧；
+                // 释放在途名额与标识，写出后再完成
+                releasePacket(packet);
+                filledPackets.add(packet);
+            }
+            framePool.recycle(currentFrame);
+        }
+
+        // 结束当前帧
+        popCurrentFrame();
+        return generateCurrentFrame();
+    }
+
+    /**
+     * 输入输出参数已全部写出，记录包的首个字节写出时间，并完成末尾帧已写出的包；
+     * 完成回调在锁外执行
+     */
+    void onIoArgsWritten() {
+        synchronized (this) {
+            if (startedPackets.isEmpty() && filledPackets.isEmpty()) {
+                return;
+            }
+
+            for (SendPacket<?> packet : startedPackets) {
+                packet.onFirstByteWritten();
+            }
+            startedPackets.clear();
+
+            completingPackets.addAll(filledPackets);
+            filledPackets.clear();
+        }
+
+        for (SendPacket<?> packet : completingPackets) {
+            provider.completedPacket(packet, true);
+        }
+        completingPackets.clear();
+    }
+
+    /**
+     * 所有数据已写出，归还输入输出参数的缓冲，
+     * 只能由持有发送状态的线程在解除发送状态前调用
+     */
+    void releaseIoArgs() {
+        args.release();
+    }
+
     /**
      * 取消Packet对应的帧发送，
      * 如果当前Packet已发送部分数据（就算只是头数据），
@@ -126,37 +335,82 @@ public class AsyncPacketReader implements Closeable {
      *
      * @param packet 待取消的packet
      */
-    synchronized void cancel(SendPacket<?> packet) {
-        if (nodeSize == 0) {
+    void cancel(SendPacket<?> packet) {
+        cancelPacket(packet);
+        completeFailedPackets();
+    }
+
+    /**
+     * 在锁内取消Packet对应的帧发送，被取消的包在释放锁后完成
+     *
+     * @param packet 待取消的packet
+     */
+    private synchronized void cancelPacket(SendPacket<?> packet) {
+        int identifier = packet.identifier();
+        if (identifier == 0 || inFlightPackets.get(identifier) != packet) {
             return;
         }
 
-        for (BytePriorityNode<Frame> x = node, before = null; x != null; before = x, x = x.next) {
-            Frame frame = x.item;
-            if (frame instanceof AbstractSendPacketFrame) {
-                AbstractSendPacketFrame packetFrame = (AbstractSendPacketFrame) frame;
-                if (packetFrame.getPacket() == packet) {
-                    boolean removable = packetFrame.abort();
-                    if (removable) {
-                        // A B C
-                        removeFrame(x, before);
-                        if (packetFrame instanceof SendHeaderFrame) {
-                            // 头帧，并且未被发送任何数据，直接取消后不需要添加取消发送帧
-                            break;
-                        }
-                    }
-
-                    // 添加终止帧，通知到接收方
-                    CancelSendFrame cancelSendFrame = new CancelSendFrame(packetFrame.getBodyIdentifier());
-                    appendNewFrame(cancelSendFrame);
-
-                    // 意外终止，返回失败
-                    provider.completedPacket(packet, false);
+        if (current instanceof SendEntityFrame
+                && ((SendEntityFrame) current).getPacket() == packet
+                && ((SendEntityFrame) current).isJumboSending()) {
+            // 扩展长度的帧已写出部分数据：继续写出文件的剩余数据，该帧结束后再取消，
+            // 避免为剩余的帧体填充大量假数据；其间仍占用在途名额与标识
+            cancelAfterCurrent = packet;
+            return;
+        }
 
-                    break;
-                }
+        // 释放在途名额与标识，须在移除帧之前，移除后可能立即拿取新的包
+        releasePacket(packet);
+
+        AbstractSendPacketFrame packetFrame;
+        boolean removable;
+        boolean isCurrent = current instanceof AbstractSendPacketFrame
+                && ((AbstractSendPacketFrame) current).getPacket() == packet;
+        if (isCurrent) {
+            // 当前帧可能已发送部分数据
+            packetFrame = (AbstractSendPacketFrame) current;
+            removable = packetFrame.abort();
+            // 当前帧刚发送完时，其下一帧可能已追加到队列中
+            Frame queuedFrame = queue.remove(identifier);
+            if (queuedFrame != null) {
+                framePool.recycle(queuedFrame);
+            }
+            if (removable) {
+                // 当前帧可能正由发送线程处理，由其处理完后回收
+                popCurrentFrame();
             }
+        } else {
+            // 队列中的帧均未发送任何数据
+            packetFrame = (AbstractSendPacketFrame) queue.remove(identifier);
+            removable = packetFrame != null && packetFrame.abort();
+            if (!hasFrame()) {
+                requestTakePacket();
+            }
+        }
+
+        if (!(removable && isFirstFrame(packetFrame))) {
+            // 已发送过首帧，添加终止帧，通知到接收方
+            CancelSendFrame cancelSendFrame = framePool.takeCancelFrame(identifier);
+            appendNewFrame(cancelSendFrame);
+        }
+
+        if (packetFrame != null && !isCurrent) {
+            // 已从队列中移除的帧不会再被处理
+            framePool.recycle(packetFrame);
         }
+
+        // 意外终止，释放锁后返回失败
+        failedPackets.add(packet);
+    }
+
+    /**
+     * 得到所有在途的包
+     *
+     * @return 在途包的快照
+     */
+    synchronized List<SendPacket<?>> inFlightPackets() {
+        return inFlightPackets.values();
     }
 
     /**
@@ -165,17 +419,63 @@ public class AsyncPacketReader implements Closeable {
      * @throws IOException 关闭时出现的异常
      */
     @Override
-    public synchronized void close() throws IOException {
-        while (node != null) {
-            Frame frame = node.item;
-            if (frame instanceof AbstractSendPacketFrame) {
-                SendPacket<?> packet = ((AbstractSendPacketFrame) frame).getPacket();
-                provider.completedPacket(packet, false);
+    public void close() throws IOException {
+        synchronized (this) {
+            // 末尾帧未能写出
+            failedPackets.addAll(filledPackets);
+            filledPackets.clear();
+            startedPackets.clear();
+
+            // 在途的包均有一个帧位于当前帧或队列中
+            List<SendPacket<?>> inFlight = inFlightPackets.values();
+            for (SendPacket<?> inFlightPacket : inFlight) {
+                inFlightPacket.setIdentifier(0);
             }
+            failedPackets.addAll(inFlight);
+
+            queue.clear();
+            current = null;
+            inFlightCount = 0;
+            inFlightPackets.clear();
+            turnPacket = null;
+            cancelAfterCurrent = null;
         }
 
-        nodeSize = 0;
-        node = null;
+        completeFailedPackets();
+    }
+
+    /**
+     * 以失败完成锁内收集的包，完成回调在锁外执行；
+     * 在锁内被调用时（如取消或切换帧时拿取新包）不做处理，由最外层的调用者释放锁后完成
+     */
+    private void completeFailedPackets() {
+        if (Thread.holdsLock(this)) {
+            return;
+        }
+
+        while (true) {
+            SendPacket<?> packet;
+            synchronized (this) {
+                if (failedPackets.isEmpty()) {
+                    return;
+                }
+                packet = failedPackets.remove(failedPackets.size() - 1);
+            }
+            provider.completedPacket(packet, false);
+        }
+    }
+
+    /**
+     * 得到包的首帧：小包使用一个紧凑帧，否则使用头帧
+     *
+     * @param identifier 标识
+     * @param packet     发送包
+     * @return 首帧
+     */
+    private synchronized AbstractSendPacketFrame takeFirstFrame(int identifier, SendPacket<?> packet) {
+        return isCompactFrame && SendCompactFrame.isSuitable(packet, args.capacity())
+                ? framePool.takeCompactFrame(identifier, packet)
+                : framePool.takeHeaderFrame(identifier, packet);
     }
 
     /**
@@ -184,15 +484,11 @@ public class AsyncPacketReader implements Closeable {
      * @param frame 新帧
      */
     private synchronized void appendNewFrame(Frame frame) {
-        // 实例化一个新的字节优先级节点
-        BytePriorityNode<Frame> newNode = new BytePriorityNode<>(frame);
-        if (node != null) {
-            // 使用优先级别添加到链表
-            node.appendWithPriority(newNode);
-        } else {
-            node = newNode;
-        }
-        nodeSize++;
+        // 包的帧以标识为键，取消时按标识移除；控制帧不参与移除
+        int key = frame instanceof AbstractSendPacketFrame
+                ? frame.getBodyIdentifier()
+                : BytePriorityQueue.NO_KEY;
+        queue.offer(frame, priorityOf(frame), key);
     }
 
     /**
@@ -201,54 +497,161 @@ public class AsyncPacketReader implements Closeable {
      * @return 帧
      */
     private synchronized Frame generateCurrentFrame() {
-        // 说明帧队列为null，直接返回null
-        if (node == null) {
-            return null;
+        if (current == null && !queue.isEmpty()) {
+            // 从队列中取出优先级最高的帧作为当前帧
+            currentPriority = queue.highestPriority();
+            current = queue.poll();
         }
 
-        return node.item;
+        return current;
     }
 
     /**
      * 弹出当前帧
      */
     private synchronized void popCurrentFrame() {
-        node = node.next;
-        nodeSize--;
-        if (node == null) {
+        current = null;
+        if (queue.isEmpty()) {
             // 请求拿出一个包
             requestTakePacket();
         }
     }
 
-    private synchronized void removeFrame(BytePriorityNode<Frame> removeNode, BytePriorityNode<Frame> before) {
-        if (before == null) {
-            // A B C
-            // B C
-            node = removeNode.next;
-        } else {
-            // A B C
-            // A C
-            before.next = removeNode.next;
+    /**
+     * 替换当前帧，用于同一个包在本轮内连续发送
+     *
+     * @param frame 新帧
+     */
+    private synchronized void replaceCurrentFrame(Frame frame) {
+        current = frame;
+    }
+
+    /**
+     * 是否有待发送的帧
+     *
+     * @return True：有
+     */
+    private synchronized boolean hasFrame() {
+        return current != null || !queue.isEmpty();
+    }
+
+    /**
+     * 是否为包的首帧，首帧未发送时接收方尚不知道该包
+     *
+     * @param frame 帧
+     * @return True：头帧或紧凑帧
+     */
+    private static boolean isFirstFrame(Frame frame) {
+        return frame instanceof SendHeaderFrame || frame instanceof SendCompactFrame;
+    }
+
+    /**
+     * 除当前帧外，是否没有其它待发送的帧与等待拿取的包
+     *
+     * @return True：没有
+     */
+    private synchronized boolean isIdle() {
+        return queue.isEmpty() && !provider.hasWaitingPacket();
+    }
+
+    /**
+     * 帧的优先级，控制帧最先发送，数据帧使用所属包的优先级
+     *
+     * @param frame 帧
+     * @return 优先级
+     */
+    private static byte priorityOf(Frame frame) {
+        if (!(frame instanceof AbstractSendPacketFrame)) {
+            return PRIORITY_CONTROL;
         }
 
-        nodeSize--;
-        if (node == null) {
-            requestTakePacket();
+        SendPacket<?> packet = ((AbstractSendPacketFrame) frame).getPacket();
+        return packet == null ? SendPacket.PRIORITY_NORMAL : packet.priority();
+    }
+
+    /**
+     * 差额轮询：每个包轮到发送时获得权重乘以{@link #QUANTUM}的额度，
+     * 发送一帧扣除对应字节数，额度用完或有更高优先级的帧等待时让出发送
+     *
+     * @param packet      刚发送完的帧所属的包，控制帧或已取消时为null
+     * @param frameLength 刚发送完的帧的长度，包括帧头
+     * @return True：继续发送该包的下一帧；False：让出发送
+     */
+    private synchronized boolean consumeDeficit(SendPacket<?> packet, int frameLength) {
+        if (packet == null) {
+            return false;
         }
+
+        if (packet != turnPacket) {
+            // 新的一轮
+            turnPacket = packet;
+            deficit = packet.weight() * QUANTUM;
+        }
+        deficit -= frameLength;
+
+        if (deficit > 0 && (queue.isEmpty() || queue.highestPriority() <= currentPriority)) {
+            return true;
+        }
+
+        // 让出后下次轮到时重新计算额度
+        turnPacket = null;
+        return false;
+    }
+
+    /**
+     * 登记在途包，生成标识并将其首帧追加到帧队列中，整个过程与取消互斥：
+     * 取消方先设置取消标记再加锁定位，因此登记时未见到取消标记的包，之后的取消一定能在队列中找到其首帧
+     *
+     * @param packet 发送包
+     * @return False：包已被取消，已释放其在途名额，并待以失败完成
+     */
+    private synchronized boolean registerPacket(SendPacket<?> packet) {
+        if (packet.isCanceled()) {
+            inFlightCount--;
+            // 释放锁后返回失败
+            failedPackets.add(packet);
+            return false;
+        }
+
+        int identifier = generateIdentifier(packet);
+        appendNewFrame(takeFirstFrame(identifier, packet));
+        return true;
     }
 
     /**
      * 生成标识符
      *
+     * @param packet 使用该标识的发送包
      * @return 标识符
      */
-    private short generateIdentifier() {
-        short identifier = ++lastIdentifier;
-        if (identifier == 255) {
-            lastIdentifier = 0;
+    private synchronized int generateIdentifier(SendPacket<?> packet) {
+        // 跳过仍被在途包占用的标识，避免长时间传输的包与新包的标识重复
+        while (true) {
+            int identifier = ++lastIdentifier;
+            if (identifier == maxIdentifier) {
+                lastIdentifier = 0;
+            }
+
+            if (inFlightPackets.get(identifier) == null) {
+                inFlightPackets.put(identifier, packet);
+                packet.setIdentifier(identifier);
+                return identifier;
+            }
+        }
+    }
+
+    /**
+     * 包的所有帧已处理完或被取消，释放其在途名额与标识
+     *
+     * @param packet 发送包
+     */
+    private synchronized void releasePacket(SendPacket<?> packet) {
+        int identifier = packet.identifier();
+        if (identifier != 0 && inFlightPackets.get(identifier) == packet) {
+            inFlightPackets.remove(identifier);
+            packet.setIdentifier(0);
+            inFlightCount--;
         }
-        return identifier;
     }
 
     /**
@@ -263,6 +666,13 @@ public class AsyncPacketReader implements Closeable {
          */
         SendPacket<?> takePacket();
 
+        /**
+         * 是否还有等待拿取的发送包
+         *
+         * @return True：有
+         */
+        boolean hasWaitingPacket();
+
         /**
          * 完成包
          *
@@ -2,16 +2,19 @@ package org.yangxin.socket.lib.impl.async;
 
 import org.yangxin.socket.lib.core.Frame;
 import org.yangxin.socket.lib.core.IoArgs;
+import org.yangxin.socket.lib.core.IoContext;
 import org.yangxin.socket.lib.core.ReceivePacket;
+import org.yangxin.socket.lib.core.ds.DirectBufferPool;
+import org.yangxin.socket.lib.core.ds.IdentifierTable;
 import org.yangxin.socket.lib.frames.*;
 
 import java.io.Closeable;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.channels.Channels;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 /**
  * 写数据到Packet中
@@ -23,81 +26,134 @@ class AsyncPacketWriter implements Closeable {
 
     private final PacketProvider provider;
 
-    private final Map<Short, PacketModel> packetMap = new HashMap<>();
-    private final IoArgs args = new IoArgs();
+    /**
+     * 正在接收的Packet，以帧标识为下标
+     */
+    private final IdentifierTable<PacketModel> packetMap = new IdentifierTable<>();
+    private final IoArgs args;
+
+    /**
+     * 当前连接在接收文件的后写阶段中的待写入队列，为null时在接收线程上直接写入文件
+     */
+    private final WriteBehindStage.Backlog writeBehindBacklog;
+
+    /**
+     * 后写阶段复制数据所用的缓冲池
+     */
+    private final DirectBufferPool bufferPool;
     private volatile Frame frameTemp;
 
+    /**
+     * 接收帧工厂，复用帧对象
+     */
+    private final ReceiveFrameFactory frameFactory = new ReceiveFrameFactory();
+
+    /**
+     * 跨越两次读取的帧头暂存
+     */
+    private final byte[] headerTemp = new byte[Frame.JUMBO_FRAME_HEADER_LENGTH];
+
+    /**
+     * 帧头暂存中已有的字节数
+     */
+    private int headerOffset;
+
     public AsyncPacketWriter(PacketProvider provider) {
         this.provider = provider;
+
+        // 接收缓冲按连接自适应调整容量
+        IoContext context = IoContext.get();
+        this.args = context == null
+                ? new IoArgs()
+                : new IoArgs(context.getMinReceiveBufferSize(), context.getMaxReceiveBufferSize());
+        WriteBehindStage writeBehindStage = context == null ? null : context.getWriteBehindStage();
+        this.writeBehindBacklog = writeBehindStage == null ? null : writeBehindStage.newBacklog();
+        this.bufferPool = context == null ? null : context.getBufferPool();
     }
 
     /**
      * 构建一份数据容纳封装，
-     * 当前帧如果没有则返回至少6字节长度的IoArgs，
-     * 如果当前帧有，则返回当前帧未消费完成的区间
+     * 每次读取都尽可能填满整个缓冲，缓冲中可能包含多个完整或不完整的帧
      *
      * @return 输入输出参数
      */
     synchronized IoArgs takeIoArgs() {
-        args.limit(frameTemp == null
-        ? Frame.FRAME_HEADER_LENGTH
-                : frameTemp.getConsumableLength());
+        args.limit(args.capacity());
         return args;
     }
 
     /**
-     * 消费输入输出参数中的数据
+     * 消费输入输出参数中的所有数据，
+     * 依次解析其中的帧，不完整的帧头暂存到下一次读取时继续拼接，不完整的帧体由当前帧继续消费
      *
      * @param args 输入输出参数
      */
     synchronized void consumeIoArgs(IoArgs args) {
-        if (frameTemp == null) {
-            Frame temp;
-            do {
-                temp = buildNewFrame(args);
-            } while (temp == null && args.remained());
+        while (true) {
+            if (frameTemp == null) {
+                if (!args.remained()) {
+                    return;
+                }
 
-            if (temp == null) {
-                return;
-            }
+                // 拼接帧头，基本帧头完整后才能确定是否为扩展长度的帧头
+                int headerLength = headerOffset < Frame.FRAME_HEADER_LENGTH
+                        ? Frame.FRAME_HEADER_LENGTH
+                        : Frame.getHeaderLength(headerTemp[2], headerTemp[3]);
+                headerOffset += args.writeTo(headerTemp, headerOffset, headerLength - headerOffset);
+                if (headerOffset < Frame.FRAME_HEADER_LENGTH) {
+                    return;
+                }
+                if (headerOffset < Frame.getHeaderLength(headerTemp[2], headerTemp[3])) {
+                    continue;
+                }
 
-            frameTemp = temp;
-            if (!args.remained()) {
-                return;
+                headerOffset = 0;
+                frameTemp = buildNewFrame(headerTemp);
+                if (frameTemp == null) {
+                    continue;
+                }
             }
-        }
 
-        Frame currentFrame = frameTemp;
-        do {
+            Frame currentFrame = frameTemp;
             try {
-                if (currentFrame.handle(args)) {
-                    if (currentFrame instanceof ReceiveHeaderFrame) {
-                        ReceiveHeaderFrame headerFrame = (ReceiveHeaderFrame) currentFrame;
-                        ReceivePacket<?, ?> packet = provider.takePacket(headerFrame.getPacketType(),
-                                headerFrame.getPacketLength(),
-                                headerFrame.getPacketHeaderInfo());
-                        appendNewPacket(headerFrame.getBodyIdentifier(), packet);
-                    } else if (currentFrame instanceof ReceiveEntityFrame) {
-                        completeEntityFrame((ReceiveEntityFrame) currentFrame);
-                    }
-
-                    frameTemp = null;
-                    break;
+                if (!currentFrame.handle(args)) {
+                    // 缓冲中的数据已消费完，当前帧等待下一次读取
+                    return;
                 }
             } catch (IOException e) {
                 e.printStackTrace();
+                return;
             }
-        } while (args.remained());
+
+            if (currentFrame instanceof ReceiveHeaderFrame) {
+                ReceiveHeaderFrame headerFrame = (ReceiveHeaderFrame) currentFrame;
+                ReceivePacket<?, ?> packet = provider.takePacket(headerFrame.getPacketType(),
+                        headerFrame.getPacketLength(),
+                        headerFrame.getPacketHeaderInfo());
+                appendNewPacket(headerFrame.getBodyIdentifier(), packet);
+            } else if (currentFrame instanceof ReceiveEntityFrame) {
+                completeEntityFrame((ReceiveEntityFrame) currentFrame);
+            }
+
+            frameTemp = null;
+        }
     }
 
-    private Frame buildNewFrame(IoArgs args) {
-        AbstractReceiveFrame frame = ReceiveFrameFactory.createInstance(args);
+    private Frame buildNewFrame(byte[] header) {
+        AbstractReceiveFrame frame = frameFactory.obtain(header);
         if (frame instanceof CancelReceiveFrame) {
             cancelReceivePacket(frame.getBodyIdentifier());
             return null;
+        } else if (frame instanceof ReceiveCompactFrame) {
+            // 紧凑帧自带Packet的类型与长度，收到帧头即可创建Packet，帧体直接写入其中
+            ReceiveCompactFrame compactFrame = (ReceiveCompactFrame) frame;
+            ReceivePacket<?, ?> packet = provider.takePacket(compactFrame.getPacketType(),
+                    compactFrame.getPacketLength(),
+                    null);
+            appendNewPacket(compactFrame.getBodyIdentifier(), packet);
+            bindPacket(compactFrame);
         } else if (frame instanceof ReceiveEntityFrame) {
-            WritableByteChannel channel = getPacketChannel(frame.getBodyIdentifier());
-            ((ReceiveEntityFrame) frame).bindPacketChannel(channel);
+            bindPacket((ReceiveEntityFrame) frame);
         }
 
         return frame;
@@ -105,42 +161,73 @@ class AsyncPacketWriter implements Closeable {
 
     private void completeEntityFrame(ReceiveEntityFrame frame) {
         synchronized (packetMap) {
-            short identifier = frame.getBodyIdentifier();
+            int identifier = frame.getBodyIdentifier();
             int length = frame.getBodyLength();
 
             PacketModel model = packetMap.get(identifier);
+            if (model == null) {
+                // 未知或已取消的Packet
+                return;
+            }
             model.unreceivedLength -= length;
             if (model.unreceivedLength <= 0) {
-                provider.completedPacket(model.packet, true);
+                completePacket(model, true);
                 packetMap.remove(identifier);
             }
         }
     }
 
-    private void appendNewPacket(short identifier, ReceivePacket<?, ?> packet) {
+    private void appendNewPacket(int identifier, ReceivePacket<?, ?> packet) {
         synchronized (packetMap) {
-            PacketModel model = new PacketModel(packet);
+            PacketModel model = new PacketModel(packet, writeBehindBacklog, bufferPool);
             packetMap.put(identifier, model);
         }
     }
 
-    private WritableByteChannel getPacketChannel(short identifier) {
+    private void bindPacket(ReceiveEntityFrame frame) {
         synchronized (packetMap) {
-            PacketModel model = packetMap.get(identifier);
-            return model == null ? null : model.channel;
+            PacketModel model = packetMap.get(frame.getBodyIdentifier());
+            if (model != null) {
+                frame.bindPacketChannel(model.channel);
+                frame.bindPacketStream(model.stream);
+            }
         }
     }
 
-    private void cancelReceivePacket(short identifier) {
+    private void cancelReceivePacket(int identifier) {
         synchronized (packetMap) {
-            PacketModel model = packetMap.get(identifier);
+            PacketModel model = packetMap.remove(identifier);
             if (model != null) {
-                ReceivePacket<?, ?> packet = model.packet;
-                provider.completedPacket(packet, false);
+                completePacket(model, false);
             }
         }
     }
 
+    /**
+     * 结束一份Packet，经过后写阶段的Packet在其数据全部写入文件后才结束
+     *
+     * @param model     Packet模型
+     * @param isSucceed 是否成功接收完成
+     */
+    private void completePacket(PacketModel model, boolean isSucceed) {
+        if (model.channel instanceof WriteBehindStage.WriteBehindChannel) {
+            ((WriteBehindStage.WriteBehindChannel) model.channel)
+                    .complete(isSucceed, result -> provider.completedPacket(model.packet, result));
+        } else {
+            provider.completedPacket(model.packet, isSucceed);
+        }
+    }
+
+    /**
+     * 当前连接在后写阶段中待写入的文件数据已满时暂停读取
+     *
+     * @param onResume 队列回落后恢复读取的回调
+     * @return 是否已暂停
+     */
+    boolean pauseIfBackpressured(Runnable onResume) {
+        return writeBehindBacklog != null && writeBehindBacklog.pauseIfFull(onResume);
+    }
+
     /**
      * 关闭操作，关闭时若当前还有正在接收到Packet，则尝试停止对应的Packet的接收
      *
@@ -149,9 +236,9 @@ class AsyncPacketWriter implements Closeable {
     @Override
     public synchronized void close() throws IOException {
         synchronized (packetMap) {
-            Collection<PacketModel> values = packetMap.values();
+            List<PacketModel> values = packetMap.values();
             for (PacketModel value : values) {
-                provider.completedPacket(value.packet, false);
+                completePacket(value, false);
             }
             packetMap.clear();
         }
@@ -176,12 +263,30 @@ class AsyncPacketWriter implements Closeable {
     static class PacketModel {
 
         final ReceivePacket<?, ?> packet;
+        /**
+         * 文件的写入通道，其它Packet为null
+         */
         final WritableByteChannel channel;
+
+        /**
+         * 非文件的Packet的输出流，直接写入，不再包装为通道
+         */
+        final OutputStream stream;
         volatile long unreceivedLength;
 
-        PacketModel(ReceivePacket<?, ?> packet) {
+        PacketModel(ReceivePacket<?, ?> packet, WriteBehindStage.Backlog backlog, DirectBufferPool pool) {
             this.packet = packet;
-            this.channel = Channels.newChannel(packet.open());
+            OutputStream stream = packet.open();
+            if (stream instanceof FileOutputStream) {
+                // 文件流直接使用其文件通道，接收缓冲中的数据直接写入文件，不再经过堆内数组中转；
+                // 配置了后写阶段时由磁盘线程写入
+                FileChannel fileChannel = ((FileOutputStream) stream).getChannel();
+                this.channel = backlog == null ? fileChannel : backlog.newChannel(fileChannel, pool);
+                this.stream = null;
+            } else {
+                this.channel = null;
+                this.stream = stream;
+            }
             this.unreceivedLength = packet.length();
         }
     }
@@ -67,6 +67,15 @@ public class AsyncReceiveDispatcher implements ReceiveDispatcher,
         }
     }
 
+    /**
+     * 后写队列回落后恢复读取
+     */
+    private void resumeReceive() {
+        if (!isClosed.get()) {
+            registerReceive();
+        }
+    }
+
     @Override
     public IoArgs provideIoArgs() {
         return writer.takeIoArgs();
@@ -79,10 +88,15 @@ public class AsyncReceiveDispatcher implements ReceiveDispatcher,
 
     @Override
     public void onConsumeCompleted(IoArgs args) {
-        do {
-            writer.consumeIoArgs(args);
-        } while (args.remained());
+        writer.consumeIoArgs(args);
+
+        // 数据已全部消费，空闲期间不占用缓冲
+        args.release();
 
+        // 当前连接接收文件的后写队列已满时暂停其读取，队列回落后恢复，其它连接不受影响
+        if (writer.pauseIfBackpressured(this::resumeReceive)) {
+            return;
+        }
         registerReceive();
     }
 
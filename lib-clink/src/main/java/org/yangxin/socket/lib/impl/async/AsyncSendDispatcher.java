@@ -1,15 +1,18 @@
 package org.yangxin.socket.lib.impl.async;
 
 import org.yangxin.socket.lib.core.IoArgs;
+import org.yangxin.socket.lib.core.IoContext;
+import org.yangxin.socket.lib.core.Packet;
 import org.yangxin.socket.lib.core.SendDispatcher;
 import org.yangxin.socket.lib.core.SendPacket;
 import org.yangxin.socket.lib.core.Sender;
+import org.yangxin.socket.lib.core.ds.RingBufferQueue;
 import org.yangxin.socket.lib.utils.CloseUtils;
 
 import java.io.IOException;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 /**
  * @author yangxin
@@ -25,9 +28,9 @@ public class AsyncSendDispatcher implements SendDispatcher,
     private final Sender sender;
 
     /**
-     * 存储发送包的队列
+     * 存储发送包的队列，多个线程并发入队无需加锁
      */
-    private final Queue<SendPacket<?>> queue = new ConcurrentLinkedQueue<>();
+    private final RingBufferQueue<SendPacket<?>> queue;
 
     /**
      * 当前异步发送调度者是否处于发送状态中
@@ -45,49 +48,123 @@ public class AsyncSendDispatcher implements SendDispatcher,
     private final AsyncPacketReader reader = new AsyncPacketReader(this);
 
     /**
-     * 队列锁
+     * 空闲时是否由调用发送的线程直接写出数据
      */
-    private final Object queueLock = new Object();
+    private final boolean isDirectSend;
 
-    public AsyncSendDispatcher(Sender sender) {
+    /**
+     * 已入队但未完成的内存包的总字节数，文件等流式包边读边发，不占用内存，不计入
+     */
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    /**
+     * 当前是否可写
+     */
+    private final AtomicBoolean isWritable = new AtomicBoolean(true);
+
+    /**
+     * 低水位与高水位
+     */
+    private final long lowWatermark;
+    private final long highWatermark;
+
+    /**
+     * 可写状态变化回调
+     */
+    private final WritabilityChangedCallback writabilityCallback;
+
+    public AsyncSendDispatcher(Sender sender, boolean isDirectSend) {
+        this(sender, isDirectSend, null);
+    }
+
+    public AsyncSendDispatcher(Sender sender, boolean isDirectSend, WritabilityChangedCallback writabilityCallback) {
         // 设置发送者
         this.sender = sender;
+        this.isDirectSend = isDirectSend;
+        this.writabilityCallback = writabilityCallback;
+
+        IoContext context = IoContext.get();
+        this.queue = new RingBufferQueue<>(context == null ? 1024 : context.getSendQueueCapacity());
+        this.lowWatermark = context == null ? 32 * 1024 : context.getSendLowWatermark();
+        this.highWatermark = context == null ? 64 * 1024 : context.getSendHighWatermark();
         sender.setSendListener(this);
     }
 
     @Override
-    public void send(SendPacket<?> packet) {
-        // 拿到队列锁
-        synchronized (queueLock) {
-            // 将发送包入队
-            queue.offer(packet);
-
-            // 设置发送状态，并实际地发送下一个包
-            if (isSending.compareAndSet(false, true)) {
-                // 向阅读者请求拿出一个包，用于发送
-                if (reader.requestTakePacket()) {
-                    // 请求发送
+    public boolean send(SendPacket<?> packet) {
+        if (isClosed.get()) {
+            // 拒绝的包先移出待发送状态，之后的取消不再重复完成
+            if (packet.take()) {
+                CloseUtils.close(packet);
+                packet.onCompleted(false);
+            }
+            return false;
+        }
+
+        // 先计入待发送字节数，再入队，避免包在计入之前就已完成
+        addPendingBytes(bufferedLength(packet));
+        packet.onEnqueued();
+        // 将发送包入队，队列已满时拒绝
+        if (!queue.offer(packet)) {
+            // 同上，已被取消的包由取消方完成
+            if (packet.take()) {
+                completedPacket(packet, false);
+            }
+            return false;
+        }
+
+        // 入队与关闭并发时，关闭可能已先清空了队列，由当前线程失败残留的包
+        if (isClosed.get()) {
+            failQueuedPackets();
+            return false;
+        }
+
+        // 设置发送状态，并实际地发送下一个包
+        if (isSending.compareAndSet(false, true)) {
+            // 向阅读者请求拿出一个包，用于发送
+            if (reader.requestTakePacket()) {
+                // 请求发送，当前没有待发送的数据，可以直接在当前线程上发送
+                if (isDirectSend) {
+                    requestDirectSend();
+                } else {
                     requestSend();
                 }
+            } else {
+                releaseSending();
             }
-
         }
+        return true;
     }
 
     @Override
     public void cancel(SendPacket<?> packet) {
-        boolean ret;
-        synchronized (queueLock) {
-            ret = queue.remove(packet);
-        }
-        if (ret) {
-            packet.cancel();
+        if (packet.cancel()) {
+            // 尚未被取出，直接完成，出队时跳过，见takePacket()
+            completedPacket(packet, false);
             return;
         }
 
+        // 已被取出，由阅读者按标识定位并终止其帧
         reader.cancel(packet);
     }
 
+    @Override
+    public void cancelAll(Predicate<SendPacket<?>> predicate) {
+        // 先取消正在发送的包，再取消队列中的包；
+        // 遍历期间被取出的包由cancel()按取出状态处理
+        for (SendPacket<?> packet : reader.inFlightPackets()) {
+            if (predicate.test(packet)) {
+                cancel(packet);
+            }
+        }
+
+        queue.forEach(packet -> {
+            if (!packet.isCanceled() && predicate.test(packet)) {
+                cancel(packet);
+            }
+        });
+    }
+
     /**
      * 取出一个包，用于发送
      *
@@ -98,24 +175,24 @@ public class AsyncSendDispatcher implements SendDispatcher,
         // 记录发送包
         SendPacket<?> packet;
 
-        synchronized (queueLock) {
-            // 从发送队列中取出一个发送包
-            packet = queue.poll();
-            if (packet == null) {
-                // 队列为空，取消发送状态，并返回null
-                isSending.set(false);
-                return null;
+        // 从发送队列中取出一个发送包，队列为空时返回null，
+        // 发送状态在最后一份数据写出后才解除，见releaseSending()
+        while ((packet = queue.poll()) != null) {
+            // 已经取出来了一个发送包，与取消竞争取出状态
+            if (packet.take()) {
+                // 返回取出来的一个发送包
+                return packet;
             }
-        }
 
-        // 已经取出来了一个发送包，查看该发送包是否被取消
-        if (packet.isCanceled()) {
-            // 已取消，不用发送，继续拿下一个包用于发送
-            return takePacket();
+            // 已取消且已由取消方完成，不用发送，继续拿下一个包用于发送
         }
 
-        // 返回取出来的一个发送包
-        return packet;
+        return null;
+    }
+
+    @Override
+    public boolean hasWaitingPacket() {
+        return !queue.isEmpty();
     }
 
     /**
@@ -127,6 +204,52 @@ public class AsyncSendDispatcher implements SendDispatcher,
     public void completedPacket(SendPacket<?> packet, boolean isSucceed) {
         // 关闭此包
         CloseUtils.close(packet);
+        addPendingBytes(-bufferedLength(packet));
+        packet.onCompleted(isSucceed);
+    }
+
+    @Override
+    public boolean isWritable() {
+        return isWritable.get();
+    }
+
+    /**
+     * 得到包计入水位的字节数，仅内存包的数据驻留在内存中
+     *
+     * @param packet 发送包
+     * @return 内存包的长度，其余为0
+     */
+    private static long bufferedLength(SendPacket<?> packet) {
+        byte type = packet.type();
+        return type == Packet.TYPE_MEMORY_BYTES || type == Packet.TYPE_MEMORY_STRING ? packet.length() : 0;
+    }
+
+    /**
+     * 调整待发送字节数，越过水位时切换可写状态并回调
+     *
+     * @param delta 变化的字节数
+     */
+    private void addPendingBytes(long delta) {
+        if (delta == 0) {
+            return;
+        }
+
+        long pending = pendingBytes.addAndGet(delta);
+        if (delta > 0 && pending >= highWatermark) {
+            if (isWritable.compareAndSet(true, false)) {
+                notifyWritabilityChanged(false);
+            }
+        } else if (delta < 0 && pending <= lowWatermark) {
+            if (isWritable.compareAndSet(false, true)) {
+                notifyWritabilityChanged(true);
+            }
+        }
+    }
+
+    private void notifyWritabilityChanged(boolean isWritable) {
+        if (writabilityCallback != null) {
+            writabilityCallback.onWritabilityChanged(isWritable);
+        }
     }
 
     /**
@@ -140,8 +263,56 @@ public class AsyncSendDispatcher implements SendDispatcher,
         }
     }
 
+    /**
+     * 在当前线程上直接进行数据发送
+     */
+    private void requestDirectSend() {
+        try {
+            sender.postSendDirect();
+        } catch (IOException e) {
+            closeAndNotify();
+        }
+    }
+
+    /**
+     * 解除发送状态，
+     * 解除后若队列中又有新的包（与send()并发入队），则重新抢占发送状态继续发送
+     */
+    private void releaseSending() {
+        while (true) {
+            // 空闲期间不占用缓冲
+            reader.releaseIoArgs();
+            isSending.set(false);
+
+            if (queue.isEmpty() || isClosed.get() || !isSending.compareAndSet(false, true)) {
+                return;
+            }
+
+            if (reader.requestTakePacket()) {
+                requestSend();
+                return;
+            }
+        }
+    }
+
     private void closeAndNotify() {
         CloseUtils.close(this);
+
+        // 已被其它线程关闭时，关闭之后才登记到阅读者中或入队的包由当前线程失败
+        CloseUtils.close(reader);
+        failQueuedPackets();
+    }
+
+    /**
+     * 以失败完成队列中尚未发送的包
+     */
+    private void failQueuedPackets() {
+        SendPacket<?> packet;
+        while ((packet = queue.poll()) != null) {
+            if (packet.take()) {
+                completedPacket(packet, false);
+            }
+        }
     }
 
     @Override
@@ -150,6 +321,9 @@ public class AsyncSendDispatcher implements SendDispatcher,
             isSending.set(false);
             // reader关闭
             reader.close();
+
+            // 关闭队列中尚未发送的包
+            failQueuedPackets();
         }
     }
 
@@ -164,16 +338,23 @@ public class AsyncSendDispatcher implements SendDispatcher,
         if (args != null) {
             e.printStackTrace();
         } else {
-            // todo
+            // 没有可发送的数据（例如帧已被取消），结束本次发送
+            releaseSending();
         }
     }
 
     @Override
     public void onConsumeCompleted(IoArgs args) {
+        // 完成已传输完文件区间的包
+        reader.onIoArgsWritten();
+
         // 继续发送当前包
         if (reader.requestTakePacket()) {
             // 请求发送
             requestSend();
+        } else {
+            // 数据已全部写出
+            releaseSending();
         }
     }
 }
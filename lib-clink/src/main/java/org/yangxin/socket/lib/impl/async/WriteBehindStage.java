@@ -0,0 +1,325 @@
+package org.yangxin.socket.lib.impl.async;
+
+import org.yangxin.socket.lib.core.ds.DirectBufferPool;
+import org.yangxin.socket.lib.utils.CloseUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 接收文件的后写磁盘阶段，
+ * 接收线程只把数据复制到缓冲中并投递到队列，由独立的磁盘线程写入文件，慢速磁盘不再阻塞套接字的读取；
+ * 同一文件的写入按投递顺序串行执行，待写入的字节数按连接统计，某个连接的达到上限时只暂停该连接的读取，
+ * 直到其回落到上限的一半以下
+ *
+ * @author yangxin
+ * 2026/10/18 下午4:10
+ */
+public class WriteBehindStage implements Closeable {
+
+    /**
+     * 当前阶段是否已关闭
+     */
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+    /**
+     * 磁盘写入线程池
+     */
+    private final ExecutorService diskPool;
+
+    /**
+     * 每个连接队列中待写入字节数的上限
+     */
+    private final long capacity;
+
+    /**
+     * 因队列已满而暂停读取的连接，阶段关闭时全部恢复
+     */
+    private final List<Backlog> pausedBacklogs = new ArrayList<>();
+
+    /**
+     * 默认2个磁盘线程，每个连接的队列上限8MB
+     */
+    public WriteBehindStage() {
+        this(2, 8 * 1024 * 1024);
+    }
+
+    /**
+     * @param threadCount 磁盘线程数量
+     * @param capacity    每个连接队列中待写入字节数的上限
+     */
+    public WriteBehindStage(int threadCount, long capacity) {
+        if (threadCount < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Illegal write-behind stage: " + threadCount + ", " + capacity);
+        }
+
+        this.capacity = capacity;
+
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        diskPool = Executors.newFixedThreadPool(threadCount,
+                r -> new Thread(r, "Clink WriteBehindStage Disk-Thread-" + threadNumber.getAndIncrement()));
+    }
+
+    /**
+     * 为连接创建待写入队列，连接接收的所有文件共用该队列统计待写入的字节数
+     *
+     * @return 连接的待写入队列
+     */
+    Backlog newBacklog() {
+        return new Backlog();
+    }
+
+    @Override
+    public void close() {
+        if (isClosed.compareAndSet(false, true)) {
+            diskPool.shutdown();
+
+            List<Backlog> backlogs;
+            synchronized (pausedBacklogs) {
+                backlogs = new ArrayList<>(pausedBacklogs);
+            }
+            for (Backlog backlog : backlogs) {
+                backlog.resume();
+            }
+        }
+    }
+
+    /**
+     * 写入完成的回调
+     */
+    interface OnCompletedListener {
+
+        /**
+         * 所有数据已写入文件
+         *
+         * @param isSucceed 是否全部写入成功
+         */
+        void onCompleted(boolean isSucceed);
+    }
+
+    /**
+     * 一个连接在后写阶段中的待写入队列，
+     * 只有该连接自身待写入的字节数达到上限时才暂停其读取，回落到上限的一半以下时恢复，
+     * 其它连接的读取不受影响
+     */
+    class Backlog {
+
+        /**
+         * 当前连接待写入的字节数
+         */
+        private final AtomicLong pendingBytes = new AtomicLong();
+
+        /**
+         * 暂停读取时登记的恢复回调，在pausedBacklogs的锁内修改
+         */
+        private volatile Runnable waiter;
+
+        private Backlog() {
+        }
+
+        /**
+         * 为文件通道创建后写通道
+         *
+         * @param channel 文件通道
+         * @param pool    复制数据所用的缓冲池，为null时使用堆内缓冲
+         * @return 后写通道
+         */
+        WriteBehindChannel newChannel(WritableByteChannel channel, DirectBufferPool pool) {
+            return new WriteBehindChannel(channel, this, pool);
+        }
+
+        /**
+         * 当前连接的队列已满时暂停读取，登记恢复回调，队列回落后回调
+         *
+         * @param onResume 恢复读取的回调
+         * @return True：队列已满，已登记回调；False：队列未满，无需暂停
+         */
+        boolean pauseIfFull(Runnable onResume) {
+            synchronized (pausedBacklogs) {
+                // 先登记再检查，与写入完成时先扣减再检查回调相对，避免回落发生在两者之间时丢失恢复
+                waiter = onResume;
+                if (pendingBytes.get() < capacity || isClosed.get()) {
+                    waiter = null;
+                    return false;
+                }
+
+                pausedBacklogs.add(this);
+                return true;
+            }
+        }
+
+        /**
+         * 一份数据已投递
+         *
+         * @param bytes 字节数
+         */
+        private void onPosted(int bytes) {
+            pendingBytes.addAndGet(bytes);
+        }
+
+        /**
+         * 一份数据写入完成
+         *
+         * @param bytes 字节数
+         */
+        private void onWritten(int bytes) {
+            if (pendingBytes.addAndGet(-bytes) < capacity / 2 && waiter != null) {
+                resume();
+            }
+        }
+
+        private void resume() {
+            Runnable resume;
+            synchronized (pausedBacklogs) {
+                resume = waiter;
+                if (resume == null) {
+                    return;
+                }
+                waiter = null;
+                pausedBacklogs.remove(this);
+            }
+
+            resume.run();
+        }
+    }
+
+    /**
+     * 后写通道，写入时复制数据并投递到磁盘线程，同一通道的任务按投递顺序串行执行
+     */
+    class WriteBehindChannel implements WritableByteChannel {
+
+        private final WritableByteChannel channel;
+        private final Backlog backlog;
+        private final DirectBufferPool pool;
+
+        /**
+         * 待执行的任务
+         */
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        /**
+         * 是否已有磁盘线程在执行当前通道的任务
+         */
+        private final AtomicBoolean isScheduled = new AtomicBoolean(false);
+
+        /**
+         * 是否已完成，完成后不再接收数据
+         */
+        private volatile boolean isCompleted;
+
+        /**
+         * 是否发生过写入失败
+         */
+        private volatile boolean isFailed;
+
+        private WriteBehindChannel(WritableByteChannel channel, Backlog backlog, DirectBufferPool pool) {
+            this.channel = channel;
+            this.backlog = backlog;
+            this.pool = pool;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (isCompleted) {
+                throw new ClosedChannelException();
+            }
+
+            int size = src.remaining();
+            ByteBuffer copy = pool == null ? ByteBuffer.allocate(size) : pool.acquire(size);
+            copy.put(src);
+            copy.flip();
+
+            backlog.onPosted(size);
+            post(() -> {
+                try {
+                    if (!isFailed) {
+                        while (copy.hasRemaining()) {
+                            channel.write(copy);
+                        }
+                    }
+                } catch (IOException e) {
+                    isFailed = true;
+                    e.printStackTrace();
+                } finally {
+                    if (pool != null) {
+                        pool.release(copy);
+                    }
+                    backlog.onWritten(size);
+                }
+            });
+            return size;
+        }
+
+        /**
+         * 在已投递的数据全部写入之后完成当前通道，
+         * 关闭底层通道并回调
+         *
+         * @param isSucceed 接收是否成功
+         * @param listener  完成回调
+         */
+        void complete(boolean isSucceed, OnCompletedListener listener) {
+            isCompleted = true;
+            post(() -> {
+                CloseUtils.close(channel);
+                listener.onCompleted(isSucceed && !isFailed);
+            });
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !isCompleted;
+        }
+
+        @Override
+        public void close() {
+            complete(false, isSucceed -> {
+            });
+        }
+
+        private void post(Runnable task) {
+            tasks.offer(task);
+            schedule();
+        }
+
+        private void schedule() {
+            if (isScheduled.compareAndSet(false, true)) {
+                try {
+                    diskPool.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // 阶段已关闭，在当前线程上执行，保证完成回调不会丢失
+                    drain();
+                }
+            }
+        }
+
+        private void drain() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            isScheduled.set(false);
+            // 释放执行权之后又有新的任务投递
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
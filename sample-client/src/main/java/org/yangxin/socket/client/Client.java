@@ -3,7 +3,10 @@ package org.yangxin.socket.client;
 import org.yangxin.socket.client.bean.ServerInfo;
 import org.yangxin.socket.foo.Foo;
 import org.yangxin.socket.lib.box.FileSendPacket;
+import org.yangxin.socket.lib.core.Frame;
 import org.yangxin.socket.lib.core.IoContext;
+import org.yangxin.socket.lib.core.SendPacket;
+import org.yangxin.socket.lib.core.ds.DirectBufferPool;
 import org.yangxin.socket.lib.impl.IoSelectorProvider;
 
 import java.io.*;
@@ -19,9 +22,17 @@ public class Client {
         // 获得缓存路径
         File cachePath = Foo.getCacheDir("client");
 
-        // 设置并启动输入输出上下文环境
+        // 设置并启动输入输出上下文环境（通过任务队列注册读写事件）
         IoContext.setup()
-                .ioProvider(new IoSelectorProvider())
+                .ioProvider(new IoSelectorProvider(true))
+                .directSend(true)
+                .eventBudget(64 * 1024)
+                .bufferPool(new DirectBufferPool())
+                .receiveBufferSize(256, 64 * 1024)
+                .sendBufferSize(Frame.FRAME_HEADER_LENGTH + Frame.MAX_CAPACITY)
+                .maxInFlightPackets(8)
+                .compactFrame(true)
+                .jumboFrameSize(1024 * 1024)
                 .start();
 
         // udp搜寻服务端信息，收到服务端信息的响应
@@ -80,6 +91,8 @@ public class Client {
                     File file = new File(filePath);
                     if (file.exists() && file.isFile()) {
                         FileSendPacket packet = new FileSendPacket(file);
+                        // 文件传输让位于聊天消息
+                        packet.setPriority(SendPacket.PRIORITY_LOW);
                         client.send(packet);
                         continue;
                     }
@@ -2,8 +2,11 @@ package org.yangxin.socket.server;
 
 import org.yangxin.socket.foo.Foo;
 import org.yangxin.socket.foo.constants.TcpConstants;
+import org.yangxin.socket.lib.core.Frame;
 import org.yangxin.socket.lib.core.IoContext;
-import org.yangxin.socket.lib.impl.IoSelectorProvider;
+import org.yangxin.socket.lib.core.ds.DirectBufferPool;
+import org.yangxin.socket.lib.impl.IoEventLoopProvider;
+import org.yangxin.socket.lib.impl.async.WriteBehindStage;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -21,9 +24,18 @@ public class Server {
         // 获得一个缓存目录
         File cachePath = Foo.getCacheDir("server");
 
-        // 启动输入输出上下文，监听处理
+        // 启动输入输出上下文，监听处理（每个CPU核一个事件循环，持续监听读事件）
         IoContext.setup()
-                .ioProvider(new IoSelectorProvider())
+                .ioProvider(new IoEventLoopProvider(Runtime.getRuntime().availableProcessors(), true))
+                .directSend(true)
+                .eventBudget(64 * 1024)
+                .bufferPool(new DirectBufferPool())
+                .receiveBufferSize(256, 64 * 1024)
+                .sendBufferSize(Frame.FRAME_HEADER_LENGTH + Frame.MAX_CAPACITY)
+                .maxInFlightPackets(8)
+                .compactFrame(true)
+                .jumboFrameSize(1024 * 1024)
+                .writeBehindStage(new WriteBehindStage())
                 .start();
 
         // 启动tcp服务端，监听注册
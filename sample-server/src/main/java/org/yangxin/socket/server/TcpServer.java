@@ -148,6 +148,11 @@ public class TcpServer implements ClientHandler.ClientHandlerCallback {
                         continue;
                     }
 
+                    if (!clientHandler.isWritable()) {
+                        // 发送积压的客户端丢弃本条消息，避免服务端为其无限缓存
+                        continue;
+                    }
+
                     // 对其他客户端发送消息
                     clientHandler.send(msg);
                 }